@@ -0,0 +1,102 @@
+package com.practica.rendimiento;
+
+import com.practica.util.Mensaje;
+import com.practica.util.Protocolo;
+import com.practica.util.Ticket;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BenchmarkCodificacion — Protocolo binario frente a la serialización de Java.
+ *
+ * Mide codificar y decodificar un registro, y codificar una actualización tal como
+ * la envía cada canal: una trama ACTUALIZACION en binario, o reset() + writeObject()
+ * del ticket entero sobre el mismo ObjectOutputStream con serialización.
+ * Al preparar se imprime el tamaño en bytes de cada mensaje.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class BenchmarkCodificacion {
+
+    private Ticket ticket;
+    private byte[] tramaRegistro;
+    private byte[] ticketSerializado;
+
+    // Igual que CanalObjetos: un único stream por conexión que se reutiliza
+    private ByteArrayOutputStream bytesConexion;
+    private ObjectOutputStream salidaConexion;
+
+    @Setup
+    public void preparar() throws IOException {
+        ticket = new Ticket("Cliente-1", "La impresora de la segunda planta no imprime desde esta mañana", "MEDIA");
+        ticket.setId(123456);
+        ticket.setEstado("EN_PROCESO");
+        ticket.setTecnicoAsignado("Tecnico-7");
+
+        tramaRegistro = Protocolo.tramaRegistro(1, ticket);
+        ticketSerializado = serializar(ticket);
+
+        bytesConexion = new ByteArrayOutputStream();
+        salidaConexion = new ObjectOutputStream(bytesConexion);
+
+        System.out.println();
+        System.out.println("Registro:     binario " + tramaRegistro.length
+            + " bytes, serializado " + ticketSerializado.length + " bytes");
+        System.out.println("Actualización: binario " + Protocolo.tramaActualizacion(ticket).length
+            + " bytes, serializado " + actualizacionSerializada() + " bytes");
+    }
+
+    @Benchmark
+    public byte[] codificarRegistroBinario() throws IOException {
+        return Protocolo.tramaRegistro(1, ticket);
+    }
+
+    @Benchmark
+    public Mensaje decodificarRegistroBinario() throws IOException {
+        return Protocolo.decodificar(tramaRegistro, 4, tramaRegistro.length - 4);
+    }
+
+    @Benchmark
+    public byte[] codificarRegistroSerializado() throws IOException {
+        return serializar(ticket);
+    }
+
+    @Benchmark
+    public Object decodificarRegistroSerializado() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(ticketSerializado))) {
+            return entrada.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] codificarActualizacionBinaria() throws IOException {
+        return Protocolo.tramaActualizacion(ticket);
+    }
+
+    @Benchmark
+    public int codificarActualizacionSerializada() throws IOException {
+        return actualizacionSerializada();
+    }
+
+    private int actualizacionSerializada() throws IOException {
+        bytesConexion.reset();
+        salidaConexion.reset();
+        salidaConexion.writeObject(ticket);
+        salidaConexion.flush();
+        return bytesConexion.size();
+    }
+
+    private static byte[] serializar(Ticket ticket) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+            salida.writeObject(ticket);
+        }
+        return bytes.toByteArray();
+    }
+}
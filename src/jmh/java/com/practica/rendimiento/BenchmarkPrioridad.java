@@ -0,0 +1,48 @@
+package com.practica.rendimiento;
+
+import com.practica.cliente.Cliente;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BenchmarkPrioridad — Coste de Cliente.generarPrioridad por descripción.
+ *
+ * Se mide una descripción de cada prioridad. Con el diccionario compilado en un
+ * autómata las tres recorren la descripción una sola vez, así que el coste solo debe
+ * depender de su longitud: BAJA ya no es el peor caso por no encontrar ninguna palabra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class BenchmarkPrioridad {
+
+    @Param({"ALTA", "MEDIA", "BAJA"})
+    public String prioridad;
+
+    private final Cliente cliente = new Cliente();
+    private String descripcion;
+
+    @Setup
+    public void preparar() {
+        switch (prioridad) {
+            case "ALTA":
+                descripcion = "Desde esta mañana no puedo entrar en el correo y tengo una entrega URGENTE a las doce";
+                break;
+            case "MEDIA":
+                descripcion = "Al abrir la hoja de cálculo de facturación aparece un error y el equipo va muy lento";
+                break;
+            default:
+                descripcion = "Quería pedir que me instalen el programa de edición de imágenes en el portátil nuevo";
+                break;
+        }
+    }
+
+    @Benchmark
+    public String generarPrioridad() {
+        return cliente.generarPrioridad(descripcion);
+    }
+}
@@ -0,0 +1,58 @@
+package com.practica.rendimiento;
+
+import com.practica.servidor.ModoServidor;
+import com.practica.servidor.Servidor;
+import com.practica.util.Ticket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BenchmarkRegistro — Tickets registrados por milisegundo con uno o varios productores.
+ *
+ * El servidor trabaja solo en memoria (sin diario) y sin técnicos, así que se mide
+ * el camino de Servidor.registrarTicket: id, lista, índice, contadores, cola de
+ * pendientes y publicación del evento. Cada iteración empieza con un servidor vacío
+ * para que el tamaño del historial no varíe de una iteración a otra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BenchmarkRegistro {
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+
+    private Servidor servidor;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        servidor = new Servidor(ModoServidor.BLOQUEANTE, null);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void unProductor() {
+        registrar();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void cuatroProductores() {
+        registrar();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void unProductorPorNucleo() {
+        registrar();
+    }
+
+    private void registrar() {
+        String prioridad = PRIORIDADES[ThreadLocalRandom.current().nextInt(PRIORIDADES.length)];
+        servidor.registrarTicket(new Ticket("Cliente", "No arranca el equipo", prioridad), null);
+    }
+}
@@ -0,0 +1,152 @@
+package com.practica.rendimiento;
+
+import com.practica.servidor.PoliticaReparto;
+import com.practica.servidor.RepartoEnvejecimiento;
+import com.practica.servidor.RepartoEstricto;
+import com.practica.servidor.RepartoPonderado;
+import com.practica.util.HistogramaLatencias;
+import com.practica.util.Ticket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BenchmarkReparto — Simulación de la espera por prioridad con cada política de reparto.
+ *
+ * No mide tiempo real: cada operación simula "tickets" llegadas de Poisson atendidas
+ * por "tecnicos" técnicos con un tiempo de servicio fijo, sobre un reloj simulado que
+ * también usa la política de envejecimiento. La mezcla es 70% ALTA, 20% MEDIA y 10% BAJA
+ * y la carga un 99% de la capacidad, de modo que ALTA y MEDIA juntas ocupan casi el 90%
+ * de los técnicos y BAJA vive de lo que sobra.
+ *
+ * Lo interesante son los contadores auxiliares: percentil 99 y máximo de la espera
+ * (segundos simulados) de cada prioridad. Con 8 técnicos, la estricta deja el p99 de
+ * BAJA en torno a 680 s; el envejecimiento lo baja a unos 310 s cediendo algo de MEDIA
+ * (p99 de unos 160 s), y la ponderada a unos 40 s a costa de ALTA (p99 de unos 90 s),
+ * que recibe menos del 70% que pide. Ver src/jmh/resultados.txt.
+ * El tiempo de cada operación solo indica el coste de la política, porque el resto
+ * de la simulación es igual para las tres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BenchmarkReparto {
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+    private static final double[] MEZCLA = {0.70, 0.20, 0.10};
+    private static final double CARGA = 0.99;
+    private static final long SERVICIO_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Param({"estricto", "ponderado", "envejecimiento"})
+    public String reparto;
+
+    @Param({"8"})
+    public int tecnicos;
+
+    @Param({"200000"})
+    public int tickets;
+
+    // Reloj simulado: lo avanza la simulación y lo lee la política de envejecimiento
+    private long ahora;
+
+    // Una semilla fija para que las tres políticas vean exactamente las mismas llegadas
+    private long[] llegadas;
+    private byte[] prioridades;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        SplittableRandom aleatorio = new SplittableRandom(1900);
+        double llegadasPorNano = CARGA * tecnicos / SERVICIO_NANOS;
+        llegadas = new long[tickets];
+        prioridades = new byte[tickets];
+        double instante = 0;
+        for (int i = 0; i < tickets; i++) {
+            instante += -Math.log(1 - aleatorio.nextDouble()) / llegadasPorNano;
+            llegadas[i] = (long) instante;
+            double sorteo = aleatorio.nextDouble();
+            prioridades[i] = (byte) (sorteo < MEZCLA[0] ? 0 : sorteo < MEZCLA[0] + MEZCLA[1] ? 1 : 2);
+        }
+    }
+
+    private PoliticaReparto crearPolitica() {
+        switch (reparto) {
+            case "ponderado":
+                return new RepartoPonderado(RepartoPonderado.PESOS_POR_DEFECTO);
+            case "envejecimiento":
+                return new RepartoEnvejecimiento(RepartoEnvejecimiento.PASO_MS_POR_DEFECTO, () -> ahora);
+            default:
+                return new RepartoEstricto();
+        }
+    }
+
+    // Esperas de la última simulación de la iteración, en segundos simulados
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Esperas {
+        public double altaP99;
+        public double mediaP99;
+        public double bajaP99;
+        public double altaMaxima;
+        public double mediaMaxima;
+        public double bajaMaxima;
+
+        void anotar(HistogramaLatencias[] esperasMs) {
+            altaP99     = esperasMs[0].percentil(99) / 1000.0;
+            mediaP99    = esperasMs[1].percentil(99) / 1000.0;
+            bajaP99     = esperasMs[2].percentil(99) / 1000.0;
+            altaMaxima  = esperasMs[0].getMaximo() / 1000.0;
+            mediaMaxima = esperasMs[1].getMaximo() / 1000.0;
+            bajaMaxima  = esperasMs[2].getMaximo() / 1000.0;
+        }
+    }
+
+    @Benchmark
+    public long simular(Esperas esperas) {
+        PoliticaReparto politica = crearPolitica();
+        HistogramaLatencias[] esperasMs = {
+            new HistogramaLatencias(), new HistogramaLatencias(), new HistogramaLatencias()};
+
+        // Instante en que queda libre cada técnico
+        PriorityQueue<Long> libres = new PriorityQueue<>();
+        for (int i = 0; i < tecnicos; i++) {
+            libres.add(0L);
+        }
+
+        ahora = 0;
+        int enEspera = 0;
+        for (int i = 0; i < tickets; i++) {
+            // Antes de la llegada, los técnicos que se liberan toman lo que ya espera
+            while (enEspera > 0 && libres.peek() <= llegadas[i]) {
+                atender(politica, libres, esperasMs);
+                enEspera--;
+            }
+            ahora = llegadas[i];
+            Ticket ticket = new Ticket("Simulado", "", PRIORIDADES[prioridades[i]]);
+            ticket.setId(i);
+            politica.agregar(ticket);
+            enEspera++;
+        }
+        while (enEspera > 0) {
+            atender(politica, libres, esperasMs);
+            enEspera--;
+        }
+
+        esperas.anotar(esperasMs);
+        return ahora;
+    }
+
+    // El técnico que antes se libera toma el siguiente ticket. Si quedó libre antes de la
+    // última llegada, empieza en ella: hasta entonces la política no tenía nada para él
+    private void atender(PoliticaReparto politica, PriorityQueue<Long> libres, HistogramaLatencias[] esperasMs) {
+        ahora = Math.max(libres.poll(), ahora);
+        Ticket ticket = politica.extraer();
+        int id = ticket.getId();
+        esperasMs[prioridades[id]].registrar((ahora - llegadas[id]) / 1_000_000);
+        libres.add(ahora + SERVICIO_NANOS);
+    }
+}
@@ -0,0 +1,73 @@
+package com.practica.rendimiento;
+
+import com.practica.servidor.ModoServidor;
+import com.practica.servidor.Servidor;
+import com.practica.util.Ticket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BenchmarkToma — Latencia de Servidor.tomarTicket según el tamaño del historial
+ * y el número de técnicos que compiten por la cola.
+ *
+ * Antes de medir se cargan "historial" tickets ya resueltos. Cada operación registra
+ * un ticket y lo toma, de modo que siempre hay trabajo y ningún técnico se queda
+ * esperando para siempre. Con la cola por prioridad la latencia debe mantenerse
+ * plana aunque el historial crezca; si depende de él, algo ha vuelto a recorrerlo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BenchmarkToma {
+
+    @Param({"0", "100000", "1000000"})
+    public int historial;
+
+    private Servidor servidor;
+
+    @Setup(Level.Trial)
+    public void preparar() throws InterruptedException {
+        servidor = new Servidor(ModoServidor.BLOQUEANTE, null);
+        for (int i = 0; i < historial; i++) {
+            servidor.registrarTicket(new Ticket("Cliente", "Historial", "BAJA"), null);
+            servidor.resolverTicket(servidor.tomarTicket("Tecnico-0"));
+        }
+    }
+
+    // Cada hilo de JMH hace de un técnico con su propio nombre
+    @State(Scope.Thread)
+    public static class Tecnico {
+
+        private static final AtomicInteger siguiente = new AtomicInteger();
+
+        final String nombre = "Tecnico-" + siguiente.incrementAndGet();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Ticket unTecnico(Tecnico tecnico) throws InterruptedException {
+        return registrarYTomar(tecnico);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Ticket cuatroTecnicos(Tecnico tecnico) throws InterruptedException {
+        return registrarYTomar(tecnico);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Ticket dieciseisTecnicos(Tecnico tecnico) throws InterruptedException {
+        return registrarYTomar(tecnico);
+    }
+
+    private Ticket registrarYTomar(Tecnico tecnico) throws InterruptedException {
+        servidor.registrarTicket(new Ticket("Cliente", "No arranca el equipo", "MEDIA"), null);
+        return servidor.tomarTicket(tecnico.nombre);
+    }
+}
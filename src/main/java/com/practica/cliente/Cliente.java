@@ -1,37 +1,256 @@
 package com.practica.cliente;
 
+import com.practica.util.ClasificadorPrioridad;
+import com.practica.util.ServidorOcupadoException;
 import com.practica.util.Ticket;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public class Cliente {
 
+    private static final String SERVIDOR = "localhost";
+    private static final int PUERTO = 1900;
+
+    // Si el servidor contesta "ocupado", se reintenta hasta este número de veces
+    // (-Dhelpdesk.reintentosMaximos) antes de dar el ticket por perdido
+    private static final int REINTENTOS_MAXIMOS = Integer.getInteger("helpdesk.reintentosMaximos", 8);
+    private static final long ESPERA_MAXIMA_MS = 30_000;
+
+    // Hilos compartidos por todos los Cliente para abrir la conexión, enviar y reintentar.
+    // Son pocos y fijos (-Dhelpdesk.hilosCliente, 2 por defecto): el envío no espera
+    // respuestas, así que ningún ticket los retiene por mucho que tarde en resolverse.
+    private static final ScheduledExecutorService HILOS_ENVIO = Executors.newScheduledThreadPool(
+        Integer.getInteger("helpdesk.hilosCliente", 2),
+        Thread.ofPlatform().name("cliente-envio-", 1).daemon().factory());
+
+    // El envío en bloque va en tramos y solo deja unos pocos sin respuesta a la vez: el
+    // servidor desconecta a quien acumula más avisos pendientes que su cola de salida
+    // (1024 por defecto), y cada ticket sin confirmar ocupa uno
+    private static final int TICKETS_POR_TRAMO = 256;
+    private static final int TRAMOS_EN_VUELO = 2;
+
+    private final String servidor;
+    private final int puerto;
+
+    // Protocolo con el que se habla al servidor: "binario" (por defecto) u "objetos"
+    // para la serialización de Java original. El servidor acepta los dos a la vez.
+    private final boolean protocoloBinario =
+        !"objetos".equalsIgnoreCase(System.getProperty("helpdesk.protocolo", "binario"));
+
+    // Lo que envía el servidor en lugar de la confirmación cuando está al límite
+    private static final String PREFIJO_OCUPADO = "OCUPADO:";
+
+    private ConexionCliente conexion;
+
+    public Cliente() {
+        this(SERVIDOR, PUERTO);
+    }
+
+    public Cliente(String servidor, int puerto) {
+        this.servidor = servidor;
+        this.puerto = puerto;
+    }
+
+    // Usa el diccionario de ClasificadorPrioridad en uso, que puede cambiar sin reiniciar
     public String generarPrioridad(String descripcion) {
-        String[] prioridadAlta = {"urgente", "bloqueado", "emergencia"};
-        String[] prioridadMedia = {"error", "falla", "fallo", "lento"};
+        return ClasificadorPrioridad.actual().clasificar(descripcion);
+    }
 
-        String texto = descripcion.toLowerCase();
+    // Envía el ticket y vuelve enseguida; los avisos llegan después a la callback
+    // desde el hilo lector de la conexión. Con el protocolo de objetos no hay
+    // multiplexación, así que cada ticket sigue ocupando su propio hilo y socket.
+    public void enviarTicket(Ticket ticket, Consumer<Ticket> callbackActualizacion) {
+        enviarTicket(ticket, null, callbackActualizacion);
+    }
 
-        for (String palabra : prioridadAlta) {
-            if (texto.contains(palabra)) {
-                return "ALTA";
+    // callbackRegistro (opcional) recibe el ticket con su id en cuanto el servidor
+    // confirma el registro, antes de cualquier actualización
+    public void enviarTicket(Ticket ticket, Consumer<Ticket> callbackRegistro, Consumer<Ticket> callbackActualizacion) {
+        if (!protocoloBinario) {
+            Thread hiloEnvio = new Thread(() -> registrarTicketObjetos(ticket, callbackRegistro, callbackActualizacion));
+            hiloEnvio.setDaemon(true);
+            hiloEnvio.start();
+            return;
+        }
+        enviar(new ConexionCliente.Seguimiento(ticket, callbackRegistro, callbackActualizacion, this::reintentar));
+    }
+
+    // Registro sin bloquear a quien llama: abrir la conexión y enviar se hace en los hilos
+    // compartidos. El futuro se completa con el ticket ya con id en cuanto el servidor
+    // lo confirma, o con error si no se pudo registrar (conexión caída, servidor
+    // ocupado tras todos los reintentos). alActualizar (opcional) recibe después cada
+    // cambio de estado hasta RESUELTO.
+    //
+    // El futuro y alActualizar se ejecutan en el hilo lector de la conexión, en orden:
+    // deben volver enseguida y pasar el trabajo largo a otro hilo.
+    // Con el protocolo de objetos el servidor no devuelve el id al registrar: el ticket
+    // del futuro lo lleva a 0 y el id llega con el primer aviso a alActualizar.
+    public CompletableFuture<Ticket> registrarTicketAsincrono(Ticket ticket, Consumer<Ticket> alActualizar) {
+        if (!protocoloBinario) {
+            return registrarTicketObjetosAsincrono(ticket, alActualizar);
+        }
+        ConexionCliente.Seguimiento seguimiento =
+            new ConexionCliente.Seguimiento(ticket, null, alActualizar, this::reintentar);
+        HILOS_ENVIO.execute(() -> enviar(seguimiento));
+        // Una copia, para que quien la reciba no pueda completar la del Seguimiento
+        return seguimiento.getRegistro().copy();
+    }
+
+    // El protocolo de objetos necesita un socket y un hilo por ticket hasta que se resuelve;
+    // se mantiene fuera de los hilos compartidos para no agotarlos
+    private CompletableFuture<Ticket> registrarTicketObjetosAsincrono(Ticket ticket, Consumer<Ticket> alActualizar) {
+        CompletableFuture<Ticket> registro = new CompletableFuture<>();
+        Consumer<Ticket> actualizacion = alActualizar != null ? alActualizar : ticketActualizado -> { };
+        Thread hiloEnvio = new Thread(() -> {
+            registrarTicketObjetos(ticket, registro::complete, actualizacion);
+            registro.completeExceptionally(new IOException("No se pudo registrar el ticket"));
+        });
+        hiloEnvio.setDaemon(true);
+        hiloEnvio.start();
+        return registro;
+    }
+
+    // Igual que enviarTicket, pero no vuelve hasta que el ticket está RESUELTO
+    public void registrarTicket(Ticket ticket, Consumer<Ticket> callbackActualizacion) {
+        if (!protocoloBinario) {
+            registrarTicketObjetos(ticket, null, callbackActualizacion);
+            return;
+        }
+        ConexionCliente.Seguimiento seguimiento =
+            new ConexionCliente.Seguimiento(ticket, null, callbackActualizacion, this::reintentar);
+        enviar(seguimiento);
+        try {
+            seguimiento.esperar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Envío en bloque para importaciones: los tickets viajan seguidos por la misma
+    // conexión, en tramos que el servidor registra de una vez, sin esperar a cada
+    // confirmación; solo se espera a un tramo cuando ya hay TRAMOS_EN_VUELO por delante.
+    // Vuelve cuando todos tienen respuesta, con los tickets registrados (con su id) en el
+    // mismo orden; null en los que no se pudieron registrar. Los que el servidor rechaza
+    // por estar ocupado se reintentan uno a uno como en enviarTicket.
+    // callbackActualizacion (opcional) sigue recibiendo los avisos de cada ticket.
+    public List<Ticket> registrarTickets(Collection<Ticket> tickets) {
+        return registrarTickets(tickets, null);
+    }
+
+    public List<Ticket> registrarTickets(Collection<Ticket> tickets, Consumer<Ticket> callbackActualizacion) {
+        if (!protocoloBinario) {
+            throw new IllegalStateException("El envío en bloque necesita el protocolo binario");
+        }
+        List<ConexionCliente.Seguimiento> seguimientos = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            seguimientos.add(new ConexionCliente.Seguimiento(ticket, null, callbackActualizacion, this::reintentar));
+        }
+
+        List<Ticket> registrados = new ArrayList<>(seguimientos.size());
+        try {
+            int ventana = TICKETS_POR_TRAMO * TRAMOS_EN_VUELO;
+            for (int desde = 0; desde < seguimientos.size(); desde += TICKETS_POR_TRAMO) {
+                // Antes de enviar más, el tramo más antiguo debe quedar fuera de la ventana
+                while (registrados.size() < desde + TICKETS_POR_TRAMO - ventana) {
+                    registrados.add(seguimientos.get(registrados.size()).esperarRegistro());
+                }
+                enviarTramo(seguimientos.subList(desde, Math.min(desde + TICKETS_POR_TRAMO, seguimientos.size())));
             }
+            while (registrados.size() < seguimientos.size()) {
+                registrados.add(seguimientos.get(registrados.size()).esperarRegistro());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return registrados;
+    }
 
-        for (String palabra : prioridadMedia) {
-            if (texto.contains(palabra)) {
-                return "MEDIA";
+    private void enviarTramo(List<ConexionCliente.Seguimiento> tramo) {
+        try {
+            conexion().enviarLote(tramo);
+        } catch (ServidorOcupadoException e) {
+            for (ConexionCliente.Seguimiento seguimiento : tramo) {
+                reintentar(seguimiento, e.getReintentarMs());
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            for (ConexionCliente.Seguimiento seguimiento : tramo) {
+                seguimiento.terminar();
             }
         }
+    }
 
-        return "BAJA";
+    private void enviar(ConexionCliente.Seguimiento seguimiento) {
+        try {
+            conexion().enviar(seguimiento);
+        } catch (ServidorOcupadoException e) {
+            reintentar(seguimiento, e.getReintentarMs());
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            seguimiento.terminar();
+        }
     }
 
-    public void registrarTicket(Ticket ticket, Consumer<Ticket> callbackActualizacion) {
+    // El servidor no admitió el ticket: se vuelve a enviar más tarde, sin bloquear a nadie
+    private void reintentar(ConexionCliente.Seguimiento seguimiento, int sugeridoMs) {
+        int intento = seguimiento.nuevoIntento();
+        if (intento > REINTENTOS_MAXIMOS) {
+            System.out.println("El servidor sigue ocupado, no se pudo registrar el ticket");
+            seguimiento.terminar();
+            return;
+        }
+        HILOS_ENVIO.schedule(() -> enviar(seguimiento), esperaReintento(sugeridoMs, intento), TimeUnit.MILLISECONDS);
+    }
+
+    // Espera exponencial a partir de lo que sugiere el servidor, con un componente
+    // aleatorio: los clientes rechazados a la vez no deben volver todos a la vez
+    static long esperaReintento(int sugeridoMs, int intento) {
+        long base = Math.min(ESPERA_MAXIMA_MS, Math.max(1L, sugeridoMs) << Math.min(intento - 1, 10));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    // Una sola conexión por Cliente para todos sus tickets; se reabre si se cayó
+    private synchronized ConexionCliente conexion() throws IOException {
+        if (conexion == null || !conexion.estaAbierta()) {
+            conexion = new ConexionCliente(servidor, puerto);
+        }
+        return conexion;
+    }
+
+    private void registrarTicketObjetos(Ticket ticket, Consumer<Ticket> callbackRegistro,
+                                        Consumer<Ticket> callbackActualizacion) {
         try {
-            Socket socket = new Socket("localhost", 1900);
+            for (int intento = 1; ; intento++) {
+                int reintentarMs = intentarRegistroObjetos(ticket, callbackRegistro, callbackActualizacion);
+                if (reintentarMs == 0) {
+                    return;
+                }
+                if (intento > REINTENTOS_MAXIMOS) {
+                    System.out.println("El servidor sigue ocupado, no se pudo registrar el ticket");
+                    return;
+                }
+                Thread.sleep(esperaReintento(reintentarMs, intento));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Devuelve 0 si el ticket siguió su curso o el tiempo sugerido si el servidor está ocupado
+    private int intentarRegistroObjetos(Ticket ticket, Consumer<Ticket> callbackRegistro,
+                                        Consumer<Ticket> callbackActualizacion) {
+        try {
+            Socket socket = new Socket(servidor, puerto);
             ObjectOutputStream salida = new ObjectOutputStream(socket.getOutputStream());
             ObjectInputStream entrada = new ObjectInputStream(socket.getInputStream());
 
@@ -41,8 +260,14 @@ public class Cliente {
             while (!terminado) {
                 Object respuesta = entrada.readObject();
 
-                if (respuesta instanceof String) {
-                    // Confirmación de registro — no se procesa en la UI
+                if (respuesta instanceof String && ((String) respuesta).startsWith(PREFIJO_OCUPADO)) {
+                    socket.close();
+                    return Math.max(1, Integer.parseInt(((String) respuesta).substring(PREFIJO_OCUPADO.length())));
+                } else if (respuesta instanceof String) {
+                    // Confirmación de registro: este protocolo no devuelve el id
+                    if (callbackRegistro != null) {
+                        callbackRegistro.accept(ticket);
+                    }
                 } else if (respuesta instanceof Ticket) {
                     Ticket ticketActualizado = (Ticket) respuesta;
                     callbackActualizacion.accept(ticketActualizado);
@@ -57,5 +282,6 @@ public class Cliente {
         } catch (IOException | ClassNotFoundException e) {
             System.out.println(e.getMessage());
         }
+        return 0;
     }
 }
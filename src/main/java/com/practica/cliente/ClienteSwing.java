@@ -9,9 +9,17 @@ import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ClienteSwing {
 
+    // Un único Cliente para toda la aplicación: todos los tickets comparten su conexión
+    private final Cliente cliente = new Cliente();
+
     public static void main(String[] argumentos) {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -72,20 +80,100 @@ public class ClienteSwing {
     // ────────────────────────────────────────────────
     // Modelo de la tabla
     // ────────────────────────────────────────────────
+    // Los avisos llegan desde el hilo lector del Cliente y solo se anotan; una vez por
+    // fotograma, un único evento en el EDT los aplica todos y avisa a la tabla con un
+    // solo fireTableRowsUpdated que cubre las filas tocadas. Si un ticket cambia varias
+    // veces en ese intervalo, solo se pinta el último estado.
+    //
+    // Los avisos se anotan por fila, la de la entrada que envió el ticket, y no por id:
+    // con el protocolo de objetos el registro no devuelve el id y solo llega en los avisos.
     private class ModeloTablaTickets extends AbstractTableModel {
 
+        // Un fotograma a 60 Hz
+        private static final int MS_POR_FOTOGRAMA = 16;
+
         private final String[] columnas = {"ID", "Estado", "Técnico"};
+
+        // Las filas solo se añaden, así que la fila de un ticket no cambia nunca
         private final List<EntradaTicket> entradas = new ArrayList<>();
 
-        public void agregarEntrada(EntradaTicket entrada) {
+        // Anotado desde cualquier hilo, aplicado en el EDT
+        private final Queue<int[]> registrosPendientes = new ConcurrentLinkedQueue<>();
+        private final Map<Integer, Ticket> avisosPendientes = new ConcurrentHashMap<>();
+        private final AtomicBoolean programado = new AtomicBoolean();
+        private final Timer temporizador = new Timer(MS_POR_FOTOGRAMA, e -> aplicarPendientes());
+
+        public ModeloTablaTickets() {
+            temporizador.setRepeats(false);
+            // Si venciera mientras aún se aplica la pasada anterior, el Timer por defecto
+            // descartaría el evento y los avisos quedarían esperando al siguiente
+            temporizador.setCoalesce(false);
+        }
+
+        // En el EDT; devuelve la fila de la entrada
+        public int agregarEntrada(EntradaTicket entrada) {
             entradas.add(entrada);
             fireTableRowsInserted(entradas.size() - 1, entradas.size() - 1);
+            return entradas.size() - 1;
+        }
+
+        // Desde cualquier hilo: el ticket de esa fila ya tiene id
+        public void registrado(int fila, int idTicket) {
+            registrosPendientes.add(new int[]{fila, idTicket});
+            programar();
+        }
+
+        // Desde cualquier hilo: nuevo estado del ticket de esa fila
+        public void actualizado(int fila, Ticket ticket) {
+            avisosPendientes.put(fila, ticket);
+            programar();
         }
 
-        public void actualizarEntrada(EntradaTicket entrada) {
-            int indice = entradas.indexOf(entrada);
-            if (indice >= 0) {
-                fireTableRowsUpdated(indice, indice);
+        // En el EDT, para lo que no viene de un aviso del servidor
+        public void actualizarEntrada(int fila) {
+            fireTableRowsUpdated(fila, fila);
+        }
+
+        // Timer.start() se puede llamar desde cualquier hilo; solo el primer aviso tras
+        // cada aplicación lo arranca
+        private void programar() {
+            if (programado.compareAndSet(false, true)) {
+                temporizador.start();
+            }
+        }
+
+        private void aplicarPendientes() {
+            // Lo que llegue a partir de aquí programa otra pasada
+            programado.set(false);
+            int primera = Integer.MAX_VALUE;
+            int ultima = -1;
+
+            int[] registro;
+            while ((registro = registrosPendientes.poll()) != null) {
+                EntradaTicket entrada = entradas.get(registro[0]);
+                if (entrada.getIdentificador() == 0) {
+                    entrada.setIdentificador(registro[1]);
+                    entrada.setEstado("PENDIENTE");
+                }
+                primera = Math.min(primera, registro[0]);
+                ultima = Math.max(ultima, registro[0]);
+            }
+
+            for (Map.Entry<Integer, Ticket> aviso : avisosPendientes.entrySet()) {
+                int fila = aviso.getKey();
+                Ticket ticket = aviso.getValue();
+                avisosPendientes.remove(fila, ticket);
+                EntradaTicket entrada = entradas.get(fila);
+                entrada.setIdentificador(ticket.getId());
+                entrada.setEstado(ticket.getEstado());
+                String tecnico = ticket.getTecnicoAsignado();
+                entrada.setTecnico(tecnico.isEmpty() ? "—" : tecnico);
+                primera = Math.min(primera, fila);
+                ultima = Math.max(ultima, fila);
+            }
+
+            if (ultima >= 0) {
+                fireTableRowsUpdated(primera, ultima);
             }
         }
 
@@ -198,27 +286,26 @@ public class ClienteSwing {
                     return;
                 }
 
-                Cliente cliente = new Cliente();
                 String prioridad = cliente.generarPrioridad(descripcion);
 
                 Ticket nuevoTicket = new Ticket(nombreCliente, descripcion, prioridad);
 
                 EntradaTicket entrada = new EntradaTicket();
-                panelSeguimiento.agregarEntrada(entrada);
-
-                Thread hiloEnvio = new Thread(()
-                        -> cliente.registrarTicket(nuevoTicket, ticketActualizado
-                                -> SwingUtilities.invokeLater(() -> {
-                            entrada.setIdentificador(ticketActualizado.getId());
-                            entrada.setEstado(ticketActualizado.getEstado());
-                            String tecnico = ticketActualizado.getTecnicoAsignado();
-                            entrada.setTecnico(tecnico.isEmpty() ? "—" : tecnico);
-                            panelSeguimiento.actualizarEntrada(entrada);
-                        })
-                        )
-                );
-                hiloEnvio.setDaemon(true);
-                hiloEnvio.start();
+                int fila = panelSeguimiento.agregarEntrada(entrada);
+
+                // Sin hilo propio: el envío va por los hilos compartidos del Cliente y
+                // los avisos llegan por la conexión compartida; el modelo los agrupa
+                cliente.registrarTicketAsincrono(nuevoTicket, ticket -> panelSeguimiento.actualizado(fila, ticket))
+                        .whenComplete((ticketRegistrado, error) -> {
+                            if (error == null) {
+                                panelSeguimiento.registrado(fila, ticketRegistrado.getId());
+                            } else {
+                                SwingUtilities.invokeLater(() -> {
+                                    entrada.setEstado("SIN ENVIAR");
+                                    panelSeguimiento.actualizarEntrada(fila);
+                                });
+                            }
+                        });
 
                 limpiarFormulario();
             });
@@ -256,12 +343,20 @@ public class ClienteSwing {
             add(new JScrollPane(tablaTickets), BorderLayout.CENTER);
         }
 
-        public void agregarEntrada(EntradaTicket entrada) {
-            modeloTabla.agregarEntrada(entrada);
+        public int agregarEntrada(EntradaTicket entrada) {
+            return modeloTabla.agregarEntrada(entrada);
+        }
+
+        public void registrado(int fila, int idTicket) {
+            modeloTabla.registrado(fila, idTicket);
+        }
+
+        public void actualizado(int fila, Ticket ticket) {
+            modeloTabla.actualizado(fila, ticket);
         }
 
-        public void actualizarEntrada(EntradaTicket entrada) {
-            modeloTabla.actualizarEntrada(entrada);
+        public void actualizarEntrada(int fila) {
+            modeloTabla.actualizarEntrada(fila);
         }
 
         private class RenderizadorFuenteUniforme extends DefaultTableCellRenderer {
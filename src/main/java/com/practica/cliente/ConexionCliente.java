@@ -0,0 +1,266 @@
+package com.practica.cliente;
+
+import com.practica.util.Mensaje;
+import com.practica.util.Protocolo;
+import com.practica.util.Ticket;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Conexión persistente con el servidor por la que viajan todos los tickets de un
+// cliente. Cada registro lleva un número de petición; la respuesta REGISTRADO lo
+// asocia al id del ticket y a partir de ahí los avisos se enrutan por ese id.
+// Un único hilo lector reparte los avisos a la callback de cada ticket.
+//
+// Si el servidor rechaza la conexión por estar al límite, el constructor lanza
+// ServidorOcupadoException; si rechaza un registro, se avisa a su Seguimiento.
+class ConexionCliente {
+
+    private final Socket socket;
+    private final DataOutputStream salida;
+    private final DataInputStream entrada;
+
+    private final AtomicInteger siguientePeticion = new AtomicInteger();
+    private final Map<Integer, Seguimiento> porPeticion = new ConcurrentHashMap<>();
+    private final Map<Integer, Seguimiento> porTicket = new ConcurrentHashMap<>();
+    private volatile boolean abierta = true;
+
+    ConexionCliente(String servidor, int puerto) throws IOException {
+        this.socket = new Socket(servidor, puerto);
+        this.salida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        salida.write(Protocolo.CABECERA);
+        salida.flush();
+        Protocolo.leerCabecera(entrada);
+
+        Thread hiloLector = new Thread(this::leer, "cliente-lector");
+        hiloLector.setDaemon(true);
+        hiloLector.start();
+    }
+
+    public boolean estaAbierta() {
+        return abierta;
+    }
+
+    public void enviar(Seguimiento seguimiento) throws IOException {
+        if (!abierta) {
+            throw new IOException("La conexión con el servidor está cerrada");
+        }
+        int idPeticion = siguientePeticion.incrementAndGet();
+        seguimiento.esperarRespuesta();
+        porPeticion.put(idPeticion, seguimiento);
+
+        byte[] trama = Protocolo.tramaRegistro(idPeticion, seguimiento.original);
+        try {
+            synchronized (salida) {
+                salida.write(trama);
+                salida.flush();
+            }
+        } catch (IOException e) {
+            porPeticion.remove(idPeticion);
+            cerrar();
+            throw e;
+        }
+    }
+
+    // Envía todo el lote sin esperar ninguna respuesta, con números de petición
+    // consecutivos; cada ticket recibe después su REGISTRADO u OCUPADO por separado
+    public void enviarLote(List<Seguimiento> seguimientos) throws IOException {
+        if (!abierta) {
+            throw new IOException("La conexión con el servidor está cerrada");
+        }
+        int primera = siguientePeticion.getAndAdd(seguimientos.size()) + 1;
+        List<Ticket> tickets = new ArrayList<>(seguimientos.size());
+        for (int i = 0; i < seguimientos.size(); i++) {
+            Seguimiento seguimiento = seguimientos.get(i);
+            seguimiento.esperarRespuesta();
+            porPeticion.put(primera + i, seguimiento);
+            tickets.add(seguimiento.original);
+        }
+
+        try {
+            List<byte[]> tramas = Protocolo.tramasRegistroLote(primera, tickets);
+            synchronized (salida) {
+                for (byte[] trama : tramas) {
+                    salida.write(trama);
+                }
+                salida.flush();
+            }
+        } catch (IOException e) {
+            for (int i = 0; i < seguimientos.size(); i++) {
+                porPeticion.remove(primera + i);
+            }
+            cerrar();
+            throw e;
+        }
+    }
+
+    private void leer() {
+        try {
+            while (true) {
+                Mensaje mensaje = Protocolo.leerTrama(entrada);
+
+                if (mensaje.getTipo() == Protocolo.REGISTRADO) {
+                    Seguimiento seguimiento = porPeticion.remove(mensaje.getIdPeticion());
+                    if (seguimiento != null) {
+                        porTicket.put(mensaje.getIdTicket(), seguimiento);
+                        seguimiento.confirmar(mensaje.getIdTicket(), mensaje.getPrioridad());
+                    }
+                } else if (mensaje.getTipo() == Protocolo.ACTUALIZACION) {
+                    Seguimiento seguimiento = porTicket.get(mensaje.getIdTicket());
+                    if (seguimiento != null && seguimiento.aplicar(mensaje)) {
+                        porTicket.remove(mensaje.getIdTicket());
+                    }
+                } else if (mensaje.getTipo() == Protocolo.OCUPADO) {
+                    Seguimiento seguimiento = porPeticion.remove(mensaje.getIdPeticion());
+                    if (seguimiento != null) {
+                        seguimiento.ocupado(mensaje.getReintentarMs());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (abierta) {
+                System.out.println(e.getMessage());
+            }
+        } finally {
+            cerrar();
+        }
+    }
+
+    public void cerrar() {
+        abierta = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nada que hacer: la conexión ya no se usa
+        }
+        // Quien espera un ticket que ya no llegará no debe quedarse bloqueado.
+        // Se retira cada entrada antes de terminarla para no perder las que lleguen a la vez.
+        terminarTodos(porPeticion);
+        terminarTodos(porTicket);
+    }
+
+    private static void terminarTodos(Map<Integer, Seguimiento> seguimientos) {
+        for (Integer clave : seguimientos.keySet()) {
+            Seguimiento seguimiento = seguimientos.remove(clave);
+            if (seguimiento != null) {
+                seguimiento.terminar();
+            }
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Estado de un ticket enviado por esta conexión
+    // ──────────────────────────────────────────────
+    // Sobrevive a los reintentos: si el servidor está ocupado, el mismo Seguimiento
+    // se vuelve a enviar más tarde, quizá por otra conexión.
+    static class Seguimiento {
+
+        private final Ticket original;
+        private final Consumer<Ticket> callbackRegistro;
+        private final Consumer<Ticket> callbackActualizacion;
+        private final BiConsumer<Seguimiento, Integer> alOcupado;
+        private final CountDownLatch terminado = new CountDownLatch(1);
+
+        // Se completa con la confirmación, o con error si el ticket se da por perdido
+        private final CompletableFuture<Ticket> registro = new CompletableFuture<>();
+
+        // Evita programar dos reintentos para un mismo envío
+        private final AtomicBoolean esperandoRespuesta = new AtomicBoolean();
+        private int intentos = 0;
+
+        // La que decida el servidor al registrarlo; hasta entonces, la enviada
+        private volatile String prioridad;
+
+        // alOcupado recibe este Seguimiento y el tiempo que sugiere el servidor
+        Seguimiento(Ticket original, Consumer<Ticket> callbackRegistro, Consumer<Ticket> callbackActualizacion,
+                    BiConsumer<Seguimiento, Integer> alOcupado) {
+            this.original = original;
+            this.callbackRegistro = callbackRegistro;
+            this.callbackActualizacion = callbackActualizacion;
+            this.alOcupado = alOcupado;
+            this.prioridad = original.getPrioridad();
+        }
+
+        void esperarRespuesta() {
+            esperandoRespuesta.set(true);
+        }
+
+        void ocupado(int reintentarMs) {
+            if (esperandoRespuesta.compareAndSet(true, false)) {
+                alOcupado.accept(this, reintentarMs);
+            }
+        }
+
+        // Solo lo llama quien programa el reintento, y nunca hay dos a la vez
+        int nuevoIntento() {
+            return ++intentos;
+        }
+
+        // Confirmación de registro: solo interesa a quien pidió callbackRegistro
+        void confirmar(int idTicket, String prioridadRegistrada) {
+            prioridad = prioridadRegistrada;
+            Ticket ticketRegistrado = new Ticket(original.getNombreCliente(), original.getDescripcion(), prioridad);
+            ticketRegistrado.setId(idTicket);
+            registro.complete(ticketRegistrado);
+            if (callbackRegistro != null) {
+                callbackRegistro.accept(ticketRegistrado);
+            }
+        }
+
+        // Devuelve true cuando el ticket queda RESUELTO y ya no habrá más avisos
+        boolean aplicar(Mensaje mensaje) {
+            // El servidor solo envía lo que cambia; se reconstruye un ticket nuevo
+            // en cada aviso, igual que hacía la deserialización
+            Ticket ticketActualizado = new Ticket(
+                original.getNombreCliente(), original.getDescripcion(), prioridad);
+            ticketActualizado.setId(mensaje.getIdTicket());
+            ticketActualizado.setEstado(mensaje.getEstado());
+            ticketActualizado.setTecnicoAsignado(mensaje.getTecnico());
+            if (callbackActualizacion != null) {
+                callbackActualizacion.accept(ticketActualizado);
+            }
+
+            if (ticketActualizado.getEstado().equals("RESUELTO")) {
+                terminar();
+                return true;
+            }
+            return false;
+        }
+
+        // Tras la confirmación no cambia nada en el registro: solo deja de esperarse el ticket
+        void terminar() {
+            registro.completeExceptionally(new IOException("No se pudo registrar el ticket"));
+            terminado.countDown();
+        }
+
+        CompletableFuture<Ticket> getRegistro() {
+            return registro;
+        }
+
+        // Espera solo a la confirmación: devuelve el ticket con su id, o null si no se registró
+        public Ticket esperarRegistro() throws InterruptedException {
+            try {
+                return registro.get();
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        public void esperar() throws InterruptedException {
+            terminado.await();
+        }
+    }
+}
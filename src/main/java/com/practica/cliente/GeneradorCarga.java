@@ -0,0 +1,222 @@
+package com.practica.cliente;
+
+import com.practica.util.HistogramaLatencias;
+import com.practica.util.Ticket;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GeneradorCarga — Herramienta de línea de comandos que simula muchos clientes a la vez.
+ *
+ * Abre "sesiones" conexiones con el servidor (un Cliente cada una) y reparte entre
+ * ellas tickets al ritmo indicado, con la mezcla de prioridades pedida. De cada
+ * ticket mide cuánto tarda en llegar la confirmación de registro, la asignación
+ * y la resolución, y al terminar imprime los percentiles de cada una.
+ *
+ * Las latencias se cuentan desde el instante en que tocaba enviar el ticket según
+ * el ritmo, no desde que se envió: si el generador se retrasa porque el servidor
+ * no da abasto, ese retraso también cuenta.
+ *
+ *   java -cp target/classes com.practica.cliente.GeneradorCarga
+ *        --sesiones=1000 --tasa=500 --duracion=60 --mezcla=20:30:50
+ *
+ * Opciones (todas opcionales):
+ *   --servidor=localhost  --puerto=1900
+ *   --sesiones=100        conexiones simultáneas
+ *   --tasa=100            tickets por segundo en total
+ *   --duracion=30         segundos enviando tickets
+ *   --espera=60           segundos máximos esperando resoluciones al terminar de enviar
+ *   --mezcla=20:30:50     proporción ALTA:MEDIA:BAJA
+ */
+public class GeneradorCarga {
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+    private static final String[] DESCRIPCIONES = {
+        "Urgente: el servidor de ficheros no responde",
+        "Error al abrir la aplicación de facturación",
+        "Solicitud de instalación de software"
+    };
+
+    private final Cliente[] sesiones;
+    private final double tasa;
+    private final long duracionNanos;
+    private final long esperaNanos;
+    private final int[] mezcla;
+
+    private final HistogramaLatencias registro   = new HistogramaLatencias();
+    private final HistogramaLatencias asignacion = new HistogramaLatencias();
+    private final HistogramaLatencias resolucion = new HistogramaLatencias();
+
+    private final AtomicLong enviados   = new AtomicLong();
+    private final AtomicLong registrados = new AtomicLong();
+    private final AtomicLong asignados  = new AtomicLong();
+    private final AtomicLong resueltos  = new AtomicLong();
+
+    public GeneradorCarga(String servidor, int puerto, int sesiones, double tasa,
+                          int duracionSegundos, int esperaSegundos, int[] mezcla) {
+        this.sesiones = new Cliente[sesiones];
+        for (int i = 0; i < sesiones; i++) {
+            this.sesiones[i] = new Cliente(servidor, puerto);
+        }
+        this.tasa = tasa;
+        this.duracionNanos = TimeUnit.SECONDS.toNanos(duracionSegundos);
+        this.esperaNanos = TimeUnit.SECONDS.toNanos(esperaSegundos);
+        this.mezcla = mezcla;
+    }
+
+    public void ejecutar() {
+        long periodo = (long) (TimeUnit.SECONDS.toNanos(1) / tasa);
+        long inicio = System.nanoTime();
+        long siguienteInforme = inicio + TimeUnit.SECONDS.toNanos(5);
+
+        for (long n = 0; ; n++) {
+            long previsto = inicio + n * periodo;
+            if (previsto - inicio >= duracionNanos) {
+                break;
+            }
+            esperarHasta(previsto);
+            enviar(sesiones[(int) (n % sesiones.length)], previsto);
+
+            if (System.nanoTime() - siguienteInforme >= 0) {
+                imprimirProgreso(inicio);
+                siguienteInforme += TimeUnit.SECONDS.toNanos(5);
+            }
+        }
+
+        // Lo enviado al final aún puede tardar en resolverse
+        long limite = System.nanoTime() + esperaNanos;
+        while (resueltos.get() < enviados.get() && System.nanoTime() - limite < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        imprimirProgreso(inicio);
+        imprimirInforme();
+    }
+
+    private void enviar(Cliente sesion, long previsto) {
+        String prioridad = elegirPrioridad();
+        String descripcion = DESCRIPCIONES[indicePrioridad(prioridad)];
+        Ticket ticket = new Ticket("Carga", descripcion, prioridad);
+        enviados.incrementAndGet();
+
+        sesion.enviarTicket(ticket,
+            ticketRegistrado -> {
+                registro.registrar(microsDesde(previsto));
+                registrados.incrementAndGet();
+            },
+            ticketActualizado -> {
+                if (ticketActualizado.getEstado().equals("EN_PROCESO")) {
+                    asignacion.registrar(microsDesde(previsto));
+                    asignados.incrementAndGet();
+                } else if (ticketActualizado.getEstado().equals("RESUELTO")) {
+                    resolucion.registrar(microsDesde(previsto));
+                    resueltos.incrementAndGet();
+                }
+            });
+    }
+
+    private String elegirPrioridad() {
+        int valor = ThreadLocalRandom.current().nextInt(mezcla[0] + mezcla[1] + mezcla[2]);
+        if (valor < mezcla[0]) {
+            return PRIORIDADES[0];
+        }
+        if (valor < mezcla[0] + mezcla[1]) {
+            return PRIORIDADES[1];
+        }
+        return PRIORIDADES[2];
+    }
+
+    private static int indicePrioridad(String prioridad) {
+        for (int i = 0; i < PRIORIDADES.length; i++) {
+            if (PRIORIDADES[i].equals(prioridad)) {
+                return i;
+            }
+        }
+        return PRIORIDADES.length - 1;
+    }
+
+    private static void esperarHasta(long instante) {
+        long restante;
+        while ((restante = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    private static long microsDesde(long instante) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - instante);
+    }
+
+    // ──────────────────────────────────────────────
+    // Informes
+    // ──────────────────────────────────────────────
+
+    private void imprimirProgreso(long inicio) {
+        long segundos = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio);
+        System.out.printf("[%4d s] enviados %d, registrados %d, asignados %d, resueltos %d%n",
+            segundos, enviados.get(), registrados.get(), asignados.get(), resueltos.get());
+    }
+
+    private void imprimirInforme() {
+        System.out.println();
+        System.out.println("Latencias en milisegundos desde el envío previsto");
+        System.out.printf("%-12s %10s %10s %10s %10s %10s %10s %10s %10s%n",
+            "", "muestras", "media", "p50", "p90", "p99", "p99.9", "p99.99", "máx");
+        imprimirFila("registro", registro);
+        imprimirFila("asignación", asignacion);
+        imprimirFila("resolución", resolucion);
+
+        long perdidos = enviados.get() - resueltos.get();
+        if (perdidos > 0) {
+            System.out.println();
+            System.out.println(perdidos + " tickets no se resolvieron dentro del tiempo de espera");
+        }
+    }
+
+    private static void imprimirFila(String nombre, HistogramaLatencias histograma) {
+        System.out.printf("%-12s %10d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+            nombre, histograma.getTotal(), histograma.getMedia() / 1000.0,
+            histograma.percentil(50) / 1000.0, histograma.percentil(90) / 1000.0,
+            histograma.percentil(99) / 1000.0, histograma.percentil(99.9) / 1000.0,
+            histograma.percentil(99.99) / 1000.0, histograma.getMaximo() / 1000.0);
+    }
+
+    // ──────────────────────────────────────────────
+    // Línea de comandos
+    // ──────────────────────────────────────────────
+
+    public static void main(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (String argumento : args) {
+            int igual = argumento.indexOf('=');
+            if (!argumento.startsWith("--") || igual < 0) {
+                System.out.println("Argumento no válido: " + argumento + " (se espera --opcion=valor)");
+                return;
+            }
+            opciones.put(argumento.substring(2, igual), argumento.substring(igual + 1));
+        }
+
+        String[] partesMezcla = opciones.getOrDefault("mezcla", "20:30:50").split(":");
+        if (partesMezcla.length != 3) {
+            System.out.println("La mezcla debe tener la forma ALTA:MEDIA:BAJA, por ejemplo 20:30:50");
+            return;
+        }
+        int[] mezcla = new int[3];
+        for (int i = 0; i < 3; i++) {
+            mezcla[i] = Integer.parseInt(partesMezcla[i]);
+        }
+
+        GeneradorCarga generador = new GeneradorCarga(
+            opciones.getOrDefault("servidor", "localhost"),
+            Integer.parseInt(opciones.getOrDefault("puerto", "1900")),
+            Integer.parseInt(opciones.getOrDefault("sesiones", "100")),
+            Double.parseDouble(opciones.getOrDefault("tasa", "100")),
+            Integer.parseInt(opciones.getOrDefault("duracion", "30")),
+            Integer.parseInt(opciones.getOrDefault("espera", "60")),
+            mezcla);
+        generador.ejecutar();
+    }
+}
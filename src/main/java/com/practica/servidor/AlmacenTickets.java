@@ -0,0 +1,331 @@
+package com.practica.servidor;
+
+import com.practica.util.Protocolo;
+import com.practica.util.Ticket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Historial de tickets del Servidor guardado por columnas en lugar de como objetos.
+// El estado y la prioridad ocupan un byte cada uno, con los códigos del protocolo
+// binario; el técnico es un índice en una tabla de nombres compartida, y el id no se
+// guarda porque los ids son consecutivos: el ticket con id N está en la posición N - base.
+// Solo el nombre del cliente y la descripción siguen siendo cadenas.
+//
+// Los Ticket se construyen al salir de aquí (consultas, instantáneas), así que el
+// historial no retiene ningún objeto por ticket aparte de sus dos cadenas.
+//
+// Con ArchivoTickets, los tickets archivados sueltan sus cadenas y, en cuanto todo el
+// principio de las columnas está archivado, compactar() lo descarta y adelanta "base".
+// Los tickets abiertos que quedan por detrás pasan a "rezagados", uno por objeto: son
+// pocos, y así lo que ocupa el almacén depende de los tickets abiertos y de los
+// resueltos recientes, no de toda la vida del servidor.
+//
+// No es seguro para varios hilos: se usa siempre con el cerrojo del Servidor tomado.
+class AlmacenTickets {
+
+    static final byte PENDIENTE  = 0;
+    static final byte EN_PROCESO = 1;
+    static final byte RESUELTO   = 2;
+
+    // Solo dentro del almacén: RESUELTO y ya copiado al archivo de disco
+    private static final byte ARCHIVADO = 3;
+
+    private static final String[] ESTADOS     = {"PENDIENTE", "EN_PROCESO", "RESUELTO"};
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+
+    // null si el servidor no archiva
+    private ArchivoTickets archivo;
+
+    // Las columnas guardan los ids [base, cantidad]
+    private int base = 1;
+    private int cantidad = 0;
+    private int archivados = 0;
+
+    private byte[] estados = new byte[1024];
+    private byte[] prioridades = new byte[1024];
+    private int[] tecnicos = new int[1024];
+    private String[] clientes = new String[1024];
+    private String[] descripciones = new String[1024];
+
+    // System.nanoTime() del registro, para medir latencias; 0 en los tickets recuperados
+    // del diario, que no se miden
+    private long[] instantesRegistro = new long[1024];
+
+    // Último cambio de estado, en segundos desde "origen"
+    private int[] cambios = new int[1024];
+    private final long origen = System.currentTimeMillis();
+
+    // Tickets sin archivar con id menor que base, por id para que archivables() siga
+    // por donde lo dejó
+    private final NavigableMap<Integer, Fila> rezagados = new TreeMap<>();
+
+    // Id por el que sigue la próxima llamada a archivables(); 1 al empezar cada vuelta
+    private int cursorArchivables = 1;
+
+    // El índice 0 es "sin técnico"
+    private final List<String> nombresTecnicos = new ArrayList<>(List.of(""));
+    private final Map<String, Integer> indicesTecnicos = new HashMap<>(Map.of("", 0));
+
+    public void setArchivo(ArchivoTickets archivo) {
+        this.archivo = archivo;
+    }
+
+    // Mayor id registrado
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public int getArchivados() {
+        return archivados;
+    }
+
+    // Los ids llegan consecutivos
+    public void agregar(int id, String nombreCliente, String descripcion, String prioridad,
+                        String estado, String tecnico, long instanteRegistro) {
+        int posicion = reservar(id);
+        estados[posicion] = Protocolo.codigoEstado(estado);
+        prioridades[posicion] = (byte) ColaPendientes.indicePrioridad(prioridad);
+        tecnicos[posicion] = indiceTecnico(tecnico);
+        clientes[posicion] = nombreCliente;
+        descripciones[posicion] = descripcion;
+        instantesRegistro[posicion] = instanteRegistro;
+        cambios[posicion] = ahora();
+    }
+
+    // Al reconstruir desde el diario, para un id que ya está en el archivo
+    public void agregarArchivado(int id) {
+        int posicion = reservar(id);
+        estados[posicion] = ARCHIVADO;
+        prioridades[posicion] = archivo.prioridad(id);
+        archivados++;
+    }
+
+    private int reservar(int id) {
+        if (id - 1 != cantidad) {
+            throw new IllegalStateException("Id fuera de orden: " + id);
+        }
+        int posicion = id - base;
+        if (posicion == estados.length) {
+            redimensionar(0, estados.length * 2);
+        }
+        cantidad++;
+        return posicion;
+    }
+
+    // Descarta las "desde" primeras posiciones y deja sitio para "capacidad"
+    private void redimensionar(int desde, int capacidad) {
+        estados = Arrays.copyOfRange(estados, desde, desde + capacidad);
+        prioridades = Arrays.copyOfRange(prioridades, desde, desde + capacidad);
+        tecnicos = Arrays.copyOfRange(tecnicos, desde, desde + capacidad);
+        clientes = Arrays.copyOfRange(clientes, desde, desde + capacidad);
+        descripciones = Arrays.copyOfRange(descripciones, desde, desde + capacidad);
+        instantesRegistro = Arrays.copyOfRange(instantesRegistro, desde, desde + capacidad);
+        cambios = Arrays.copyOfRange(cambios, desde, desde + capacidad);
+    }
+
+    public boolean existe(int id) {
+        return id >= 1 && id <= cantidad;
+    }
+
+    public boolean estaArchivado(int id) {
+        return id >= base ? estados[id - base] == ARCHIVADO : !rezagados.containsKey(id);
+    }
+
+    public byte getEstado(int id) {
+        if (id < base) {
+            Fila fila = rezagados.get(id);
+            return fila == null ? RESUELTO : fila.estado;
+        }
+        byte estado = estados[id - base];
+        return estado == ARCHIVADO ? RESUELTO : estado;
+    }
+
+    public byte getPrioridad(int id) {
+        if (id < base) {
+            Fila fila = rezagados.get(id);
+            return fila == null ? archivo.prioridad(id) : fila.prioridad;
+        }
+        return prioridades[id - base];
+    }
+
+    // Lo que sigue, solo para tickets sin archivar
+
+    public String getTecnico(int id) {
+        return nombresTecnicos.get(id < base ? rezagados.get(id).tecnico : tecnicos[id - base]);
+    }
+
+    public long getInstanteRegistro(int id) {
+        return id < base ? rezagados.get(id).instanteRegistro : instantesRegistro[id - base];
+    }
+
+    // En milisegundos desde 1970, con precisión de segundos
+    public long getInstanteCambio(int id) {
+        return origen + (id < base ? rezagados.get(id).cambio : cambios[id - base]) * 1000L;
+    }
+
+    public void cambiarEstado(int id, byte estado) {
+        if (id < base) {
+            Fila fila = rezagados.get(id);
+            fila.estado = estado;
+            fila.cambio = ahora();
+        } else {
+            estados[id - base] = estado;
+            cambios[id - base] = ahora();
+        }
+    }
+
+    public void asignar(int id, String tecnico) {
+        if (id < base) {
+            rezagados.get(id).tecnico = indiceTecnico(tecnico);
+        } else {
+            tecnicos[id - base] = indiceTecnico(tecnico);
+        }
+    }
+
+    // Copia del ticket tal y como está ahora
+    public Ticket ticket(int id) {
+        Ticket ticket;
+        if (id < base) {
+            Fila fila = rezagados.get(id);
+            ticket = new Ticket(fila.cliente, fila.descripcion, PRIORIDADES[fila.prioridad]);
+        } else {
+            ticket = new Ticket(clientes[id - base], descripciones[id - base], PRIORIDADES[prioridades[id - base]]);
+        }
+        ticket.setId(id);
+        copiarEstado(ticket);
+        return ticket;
+    }
+
+    // Pone al día el estado y el técnico de un Ticket que ya está fuera del almacén
+    public void copiarEstado(Ticket ticket) {
+        ticket.setEstado(ESTADOS[getEstado(ticket.getId())]);
+        ticket.setTecnicoAsignado(getTecnico(ticket.getId()));
+    }
+
+    // ──────────────────────────────────────────────
+    // Archivo
+    // ──────────────────────────────────────────────
+
+    // Copias de los tickets RESUELTO sin archivar cuyo último cambio es anterior a "limite".
+    // Cada llamada revisa como mucho "maximo" tickets, desde donde lo dejó la anterior,
+    // así que nunca devuelve más que eso; al pasar del último vuelve a empezar por el 1.
+    public List<Ticket> archivables(long limite, int maximo) {
+        List<Ticket> tickets = new ArrayList<>();
+        int segundos = (int) Math.floorDiv(limite - origen, 1000L);
+        int revisados = 0;
+        if (cursorArchivables < base) {
+            for (Map.Entry<Integer, Fila> entrada : rezagados.tailMap(cursorArchivables, true).entrySet()) {
+                if (revisados == maximo) {
+                    cursorArchivables = entrada.getKey();
+                    return tickets;
+                }
+                revisados++;
+                Fila fila = entrada.getValue();
+                if (fila.estado == RESUELTO && fila.cambio < segundos) {
+                    tickets.add(ticket(entrada.getKey()));
+                }
+            }
+            cursorArchivables = base;
+        }
+        for (; cursorArchivables <= cantidad && revisados < maximo; cursorArchivables++, revisados++) {
+            int posicion = cursorArchivables - base;
+            if (estados[posicion] == RESUELTO && cambios[posicion] < segundos) {
+                tickets.add(ticket(cursorArchivables));
+            }
+        }
+        if (cursorArchivables > cantidad) {
+            cursorArchivables = 1;
+        }
+        return tickets;
+    }
+
+    // true si la última llamada a archivables() llegó al final del almacén
+    public boolean vueltaArchivablesTerminada() {
+        return cursorArchivables == 1;
+    }
+
+    // El ticket, RESUELTO y sin archivar, ya está en el archivo: se sueltan sus datos
+    public void marcarArchivado(int id) {
+        if (id < base) {
+            rezagados.remove(id);
+        } else {
+            int posicion = id - base;
+            estados[posicion] = ARCHIVADO;
+            clientes[posicion] = null;
+            descripciones[posicion] = null;
+        }
+        archivados++;
+    }
+
+    // Adelanta base hasta el último archivado antes del primer RESUELTO sin archivar.
+    // Los tickets abiertos que quedan por detrás pasan a rezagados.
+    public void compactar() {
+        int nuevaBase = base;
+        for (int id = base; id <= cantidad; id++) {
+            byte estado = estados[id - base];
+            if (estado == ARCHIVADO) {
+                nuevaBase = id + 1;
+            } else if (estado == RESUELTO) {
+                break;
+            }
+        }
+        if (nuevaBase == base) {
+            return;
+        }
+        for (int id = base; id < nuevaBase; id++) {
+            int posicion = id - base;
+            if (estados[posicion] != ARCHIVADO) {
+                rezagados.put(id, new Fila(estados[posicion], prioridades[posicion], tecnicos[posicion],
+                    clientes[posicion], descripciones[posicion], instantesRegistro[posicion], cambios[posicion]));
+            }
+        }
+        int quedan = cantidad - nuevaBase + 1;
+        redimensionar(nuevaBase - base, Math.max(1024, Integer.highestOneBit(Math.max(quedan, 1)) * 2));
+        base = nuevaBase;
+    }
+
+    // Los técnicos son pocos y sus nombres se repiten en miles de tickets: cada nombre
+    // distinto se guarda una sola vez
+    private int indiceTecnico(String tecnico) {
+        Integer indice = indicesTecnicos.get(tecnico);
+        if (indice == null) {
+            indice = nombresTecnicos.size();
+            nombresTecnicos.add(tecnico);
+            indicesTecnicos.put(tecnico, indice);
+        }
+        return indice;
+    }
+
+    private int ahora() {
+        return (int) ((System.currentTimeMillis() - origen) / 1000);
+    }
+
+    // Un ticket abierto que se ha quedado por detrás de base
+    private static class Fila {
+
+        byte estado;
+        final byte prioridad;
+        int tecnico;
+        final String cliente;
+        final String descripcion;
+        final long instanteRegistro;
+        int cambio;
+
+        Fila(byte estado, byte prioridad, int tecnico, String cliente, String descripcion,
+             long instanteRegistro, int cambio) {
+            this.estado = estado;
+            this.prioridad = prioridad;
+            this.tecnico = tecnico;
+            this.cliente = cliente;
+            this.descripcion = descripcion;
+            this.instanteRegistro = instanteRegistro;
+            this.cambio = cambio;
+        }
+    }
+}
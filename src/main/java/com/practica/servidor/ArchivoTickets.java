@@ -0,0 +1,297 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Tickets resueltos hace tiempo, fuera de la memoria del Servidor. Un ticket RESUELTO
+// ya no cambia, así que pasado un tiempo se copia aquí y el Servidor suelta sus datos.
+// Son dos ficheros:
+//
+//   archivo.dat  segmento de solo anexado con un registro por ticket:
+//                [int longitud][int id][nombreCliente][descripcion][byte prioridad][tecnicoAsignado]
+//   indice.dat   una entrada fija de 9 bytes por id, en la posición (id - 1) * 9:
+//                [long posición del registro + 1, 0 si no está archivado][byte prioridad]
+//
+// El índice se mapea en memoria, fuera del heap: saber si un id está archivado y con
+// qué prioridad no cuesta ninguna lectura de disco, lo que permite a los recuentos por
+// bloque recorrer tramos archivados. Un MappedByteBuffer no pasa de 2 GB, así que se
+// mapea por tramos de ENTRADAS_POR_MAPA ids; con ids int, el índice llega a unos 19 GB.
+// Los registros completos se leen con lecturas posicionales y los más recientes se
+// guardan en una caché LRU acotada (-Dhelpdesk.archivoCache, 4096 tickets por defecto).
+//
+// Archivar va en dos pasos. escribir() añade los registros al segmento y los fuerza a
+// disco; después, con el cerrojo del Servidor tomado, se indexa solo lo que sigue
+// RESUELTO, y forzarIndice() lo lleva a disco. Un id que aparece en el índice tiene
+// siempre su registro completo. Los registros sin entrada en el índice (un ticket que
+// se reabrió mientras tanto, o una tanda cortada por una caída) se ignoran, y esos
+// tickets siguen en el diario como si no se hubieran archivado.
+//
+// Con el archivo en solo lectura no se archiva nada nuevo, pero los tickets que ya
+// están en él se siguen leyendo: un servidor que arranca sin archivar no los pierde.
+class ArchivoTickets implements Closeable {
+
+    private static final int ENTRADA = 9;
+
+    // 16M ids, 144 MB por mapa
+    private static final int ENTRADAS_POR_MAPA = 1 << 24;
+    private static final long BYTES_POR_MAPA = (long) ENTRADAS_POR_MAPA * ENTRADA;
+    private static final int ENTRADAS_INICIALES = 1024;
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+
+    private final FileChannel segmento;
+    private final FileChannel canalIndice;
+    private final FileChannel.MapMode modo;
+    private long finSegmento;
+
+    // Todos los mapas ocupan BYTES_POR_MAPA salvo el último, que se vuelve a mapear al
+    // crecer. Las lecturas pueden llegar desde cualquier hilo: cada cambio publica un
+    // array nuevo.
+    private volatile MappedByteBuffer[] mapas;
+    private volatile int maximoId;
+
+    // Mapas con entradas nuevas desde el último forzarIndice()
+    private int primerMapaSucio = Integer.MAX_VALUE;
+    private int ultimoMapaSucio = -1;
+
+    private final Map<Integer, Ticket> cache;
+
+    ArchivoTickets(Path directorio, int tamanoCache) throws IOException {
+        this(directorio, tamanoCache, false);
+    }
+
+    // En solo lectura los dos ficheros deben existir ya
+    ArchivoTickets(Path directorio, int tamanoCache, boolean soloLectura) throws IOException {
+        if (soloLectura) {
+            this.segmento = FileChannel.open(directorio.resolve("archivo.dat"), StandardOpenOption.READ);
+            this.canalIndice = FileChannel.open(directorio.resolve("indice.dat"), StandardOpenOption.READ);
+            this.modo = FileChannel.MapMode.READ_ONLY;
+        } else {
+            Files.createDirectories(directorio);
+            this.segmento = FileChannel.open(directorio.resolve("archivo.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.canalIndice = FileChannel.open(directorio.resolve("indice.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.modo = FileChannel.MapMode.READ_WRITE;
+        }
+        this.finSegmento = segmento.size();
+
+        // Un mapa de solo lectura no puede pasar del final del fichero
+        long tamano = soloLectura ? canalIndice.size()
+            : Math.max(canalIndice.size(), (long) ENTRADAS_INICIALES * ENTRADA);
+        int cantidadMapas = (int) ((tamano + BYTES_POR_MAPA - 1) / BYTES_POR_MAPA);
+        MappedByteBuffer[] abiertos = new MappedByteBuffer[cantidadMapas];
+        for (int i = 0; i < cantidadMapas; i++) {
+            abiertos[i] = mapear(i, Math.min(BYTES_POR_MAPA, tamano - i * BYTES_POR_MAPA));
+        }
+        this.mapas = abiertos;
+
+        int ultimo = (int) Math.min(Integer.MAX_VALUE, tamano / ENTRADA);
+        while (ultimo > 0 && !contiene(ultimo)) {
+            ultimo--;
+        }
+        this.maximoId = ultimo;
+
+        this.cache = new LinkedHashMap<Integer, Ticket>(tamanoCache * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Ticket> masAntigua) {
+                return size() > tamanoCache;
+            }
+        };
+    }
+
+    public boolean contiene(int id) {
+        return id >= 1 && posicionRegistro(mapas, id) >= 0;
+    }
+
+    // Solo para ids archivados
+    public byte prioridad(int id) {
+        return mapas[mapaDe(id)].get(desplazamientoDe(id) + 8);
+    }
+
+    // Mayor id archivado, 0 si no hay ninguno
+    public int getMaximoId() {
+        return maximoId;
+    }
+
+    // escribir(), indexar() y forzarIndice() solo desde un hilo a la vez (el que archiva
+    // en el Servidor) y nunca en solo lectura. Todos los tickets deben estar RESUELTO.
+
+    // Añade los registros al segmento, ya en disco al volver, y devuelve la posición de
+    // cada uno para indexar()
+    public long[] escribir(List<Ticket> tickets) throws IOException {
+        long[] posiciones = new long[tickets.size()];
+        for (int i = 0; i < tickets.size(); i++) {
+            posiciones[i] = finSegmento;
+            ByteBuffer registro = codificar(tickets.get(i));
+            while (registro.hasRemaining()) {
+                finSegmento += segmento.write(registro, finSegmento);
+            }
+        }
+        segmento.force(false);
+        return posiciones;
+    }
+
+    // Publica la entrada del ticket en el índice: desde aquí se lee de este archivo
+    public void indexar(Ticket ticket, long posicion) throws IOException {
+        int id = ticket.getId();
+        asegurarCapacidad(id);
+        int mapa = mapaDe(id);
+        int desplazamiento = desplazamientoDe(id);
+        MappedByteBuffer entradas = mapas[mapa];
+        entradas.put(desplazamiento + 8, (byte) ColaPendientes.indicePrioridad(ticket.getPrioridad()));
+        entradas.putLong(desplazamiento, posicion + 1);
+        primerMapaSucio = Math.min(primerMapaSucio, mapa);
+        ultimoMapaSucio = Math.max(ultimoMapaSucio, mapa);
+        maximoId = Math.max(maximoId, id);
+    }
+
+    public void forzarIndice() {
+        MappedByteBuffer[] actuales = mapas;
+        for (int i = primerMapaSucio; i <= ultimoMapaSucio; i++) {
+            actuales[i].force();
+        }
+        primerMapaSucio = Integer.MAX_VALUE;
+        ultimoMapaSucio = -1;
+    }
+
+    private void asegurarCapacidad(int id) throws IOException {
+        MappedByteBuffer[] actuales = mapas;
+        int mapa = mapaDe(id);
+        long necesario = (long) desplazamientoDe(id) + ENTRADA;
+        if (mapa < actuales.length && actuales[mapa].capacity() >= necesario) {
+            return;
+        }
+        MappedByteBuffer[] nuevos = Arrays.copyOf(actuales, Math.max(actuales.length, mapa + 1));
+        // Los mapas anteriores al del id pasan a ocupar su tamaño completo
+        for (int i = actuales.length - 1; i < mapa; i++) {
+            if (nuevos[i] == null || nuevos[i].capacity() < BYTES_POR_MAPA) {
+                nuevos[i] = mapear(i, BYTES_POR_MAPA);
+            }
+        }
+        long actual = nuevos[mapa] == null ? 0 : nuevos[mapa].capacity();
+        nuevos[mapa] = mapear(mapa, Math.min(BYTES_POR_MAPA,
+            Math.max(necesario, Math.max(actual * 2, (long) ENTRADAS_INICIALES * ENTRADA))));
+        mapas = nuevos;
+    }
+
+    private MappedByteBuffer mapear(int mapa, long bytes) throws IOException {
+        return canalIndice.map(modo, mapa * BYTES_POR_MAPA, bytes);
+    }
+
+    private static int mapaDe(int id) {
+        return (id - 1) / ENTRADAS_POR_MAPA;
+    }
+
+    // Dentro de su mapa, nunca pasa de BYTES_POR_MAPA
+    private static int desplazamientoDe(int id) {
+        return (id - 1) % ENTRADAS_POR_MAPA * ENTRADA;
+    }
+
+    // -1 si el id no está en el índice
+    private static long posicionRegistro(MappedByteBuffer[] mapas, int id) {
+        int mapa = mapaDe(id);
+        int desplazamiento = desplazamientoDe(id);
+        if (mapa >= mapas.length || mapas[mapa].capacity() < desplazamiento + ENTRADA) {
+            return -1;
+        }
+        return mapas[mapa].getLong(desplazamiento) - 1;
+    }
+
+    // Copia del ticket archivado con ese id: cada llamada devuelve un objeto nuevo
+    public Ticket leer(int id) {
+        Ticket ticket;
+        synchronized (cache) {
+            ticket = cache.get(id);
+        }
+        if (ticket == null) {
+            ticket = leerDeDisco(id);
+            synchronized (cache) {
+                cache.put(id, ticket);
+            }
+        }
+        return copiar(ticket);
+    }
+
+    private Ticket leerDeDisco(int id) {
+        try {
+            long posicion = posicionRegistro(mapas, id);
+            if (posicion < 0) {
+                throw new IOException("El ticket " + id + " no está archivado");
+            }
+            ByteBuffer longitud = ByteBuffer.allocate(4);
+            leerCompleto(longitud, posicion);
+            ByteBuffer registro = ByteBuffer.allocate(longitud.getInt(0));
+            leerCompleto(registro, posicion + 4);
+            registro.flip();
+
+            registro.getInt(); // id
+            String nombreCliente = leerTexto(registro);
+            String descripcion   = leerTexto(registro);
+            Ticket ticket = new Ticket(nombreCliente, descripcion, PRIORIDADES[registro.get()]);
+            ticket.setId(id);
+            ticket.setEstado("RESUELTO");
+            ticket.setTecnicoAsignado(leerTexto(registro));
+            return ticket;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el ticket archivado " + id, e);
+        }
+    }
+
+    private void leerCompleto(ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            if (segmento.read(destino, posicion + destino.position()) < 0) {
+                throw new IOException("Archivo de tickets truncado");
+            }
+        }
+    }
+
+    private static ByteBuffer codificar(Ticket ticket) {
+        byte[] nombreCliente = ticket.getNombreCliente().getBytes(StandardCharsets.UTF_8);
+        byte[] descripcion   = ticket.getDescripcion().getBytes(StandardCharsets.UTF_8);
+        byte[] tecnico       = ticket.getTecnicoAsignado().getBytes(StandardCharsets.UTF_8);
+        int longitud = 4 + 4 + nombreCliente.length + 4 + descripcion.length + 1 + 4 + tecnico.length;
+        ByteBuffer registro = ByteBuffer.allocate(4 + longitud);
+        registro.putInt(longitud);
+        registro.putInt(ticket.getId());
+        registro.putInt(nombreCliente.length).put(nombreCliente);
+        registro.putInt(descripcion.length).put(descripcion);
+        registro.put((byte) ColaPendientes.indicePrioridad(ticket.getPrioridad()));
+        registro.putInt(tecnico.length).put(tecnico);
+        return registro.flip();
+    }
+
+    private static String leerTexto(ByteBuffer datos) {
+        byte[] bytes = new byte[datos.getInt()];
+        datos.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Ticket copiar(Ticket ticket) {
+        Ticket copia = new Ticket(ticket.getNombreCliente(), ticket.getDescripcion(), ticket.getPrioridad());
+        copia.setId(ticket.getId());
+        copia.setEstado(ticket.getEstado());
+        copia.setTecnicoAsignado(ticket.getTecnicoAsignado());
+        return copia;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segmento.close();
+        canalIndice.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.practica.servidor;
+
+import com.practica.util.Mensaje;
+import com.practica.util.Protocolo;
+import com.practica.util.Ticket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Protocolo binario: cada aviso es una única trama con solo lo que cambió.
+// Hay un CanalBinario por ticket, pero todos los de una conexión comparten su
+// cola de salida, que es la única que escribe en el OutputStream.
+class CanalBinario implements CanalCliente, ColaSalida.Destino {
+
+    private final ColaSalida cola;
+    private final OutputStream salida;
+    private final int idPeticion;
+
+    CanalBinario(ColaSalida cola, OutputStream salida, int idPeticion) {
+        this.cola = cola;
+        this.salida = salida;
+        this.idPeticion = idPeticion;
+    }
+
+    // Un canal por ticket de un REGISTRAR_LOTE, con números de petición consecutivos
+    static List<CanalBinario> paraLote(ColaSalida cola, OutputStream salida, Mensaje lote) {
+        List<CanalBinario> canales = new ArrayList<>(lote.getTickets().size());
+        for (int i = 0; i < lote.getTickets().size(); i++) {
+            canales.add(new CanalBinario(cola, salida, lote.getIdPeticion() + i));
+        }
+        return canales;
+    }
+
+    @Override
+    public void enviarConfirmacion(Ticket ticket) throws IOException {
+        cola.confirmar(this, ticket);
+    }
+
+    @Override
+    public void enviarActualizacion(Ticket ticket) throws IOException {
+        cola.actualizar(this, ticket);
+    }
+
+    @Override
+    public void enviarOcupado(int reintentarMs) throws IOException {
+        cola.rechazar(this, reintentarMs);
+    }
+
+    // Desde el hilo que vacía la cola, que hace flush() al final de cada tramo
+    @Override
+    public void escribirConfirmacion(Ticket ticket) throws IOException {
+        salida.write(Protocolo.tramaRegistrado(idPeticion, ticket));
+    }
+
+    @Override
+    public void escribirActualizacion(Ticket ticket) throws IOException {
+        salida.write(Protocolo.tramaActualizacion(ticket));
+    }
+
+    @Override
+    public void escribirOcupado(int reintentarMs) throws IOException {
+        salida.write(Protocolo.tramaOcupado(idPeticion, reintentarMs));
+    }
+}
@@ -0,0 +1,21 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.io.IOException;
+
+// Vía por la que el Servidor avisa a un cliente de su ticket, sea cual sea el
+// protocolo con el que se conectó (serialización de Java o binario).
+public interface CanalCliente {
+
+    void enviarConfirmacion(Ticket ticket) throws IOException;
+
+    void enviarActualizacion(Ticket ticket) throws IOException;
+
+    // El ticket no se registró porque el servidor está al límite
+    void enviarOcupado(int reintentarMs) throws IOException;
+
+    // El Servidor ya no enviará nada más por este canal (ticket resuelto o envío fallido)
+    default void terminar() {
+    }
+}
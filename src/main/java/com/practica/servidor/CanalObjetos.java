@@ -0,0 +1,62 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+// Protocolo original: mensajes y tickets completos con serialización de Java
+class CanalObjetos implements CanalCliente, ColaSalida.Destino {
+
+    private final ColaSalida cola;
+    private final ObjectOutputStream salida;
+
+    CanalObjetos(ColaSalida cola, ObjectOutputStream salida) {
+        this.cola = cola;
+        this.salida = salida;
+    }
+
+    @Override
+    public void enviarConfirmacion(Ticket ticket) throws IOException {
+        cola.confirmar(this, ticket);
+    }
+
+    @Override
+    public void enviarActualizacion(Ticket ticket) throws IOException {
+        cola.actualizar(this, ticket);
+    }
+
+    // El cliente reintenta con otra conexión: esta ya no tiene nada más que hacer
+    @Override
+    public void enviarOcupado(int reintentarMs) throws IOException {
+        cola.rechazar(this, reintentarMs);
+        cola.cerrarAlVaciar();
+    }
+
+    // En este protocolo cada conexión lleva un único ticket: al terminarlo, se
+    // cierra su cola en cuanto salga lo pendiente
+    @Override
+    public void terminar() {
+        cola.cerrarAlVaciar();
+    }
+
+    @Override
+    public void escribirConfirmacion(Ticket ticket) throws IOException {
+        salida.writeObject("Ticket registrado.");
+        salida.flush();
+    }
+
+    @Override
+    public void escribirActualizacion(Ticket ticket) throws IOException {
+        // Sin reset() el stream reenviaría la referencia al ticket ya escrito, no su estado actual
+        salida.reset();
+        salida.writeObject(ticket);
+        salida.flush();
+    }
+
+    @Override
+    public void escribirOcupado(int reintentarMs) throws IOException {
+        salida.writeObject(ControlAdmision.PREFIJO_OCUPADO + reintentarMs);
+        salida.flush();
+    }
+}
@@ -0,0 +1,70 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+// Tickets en estado PENDIENTE. Se mantienen aparte del historial para que tomar
+// el siguiente ticket no dependa de cuántos tickets resueltos haya acumulado el historial.
+// Qué ticket sale primero lo decide la PoliticaReparto; esta clase solo lleva la espera.
+//
+// El semáforo lleva la cuenta de entradas. Cada agregar() libera un permiso, lo que
+// despierta a un único técnico en espera en lugar de a todos.
+class ColaPendientes {
+
+    private final PoliticaReparto politica;
+
+    // Siempre hay al menos tantas entradas en la política como permisos
+    private final Semaphore disponibles = new Semaphore(0);
+
+    ColaPendientes(PoliticaReparto politica) {
+        this.politica = politica;
+    }
+
+    public void agregar(Ticket ticket) {
+        politica.agregar(ticket);
+        disponibles.release();
+    }
+
+    // Espera a que haya una entrada y devuelve la que elija la política.
+    // Los tickets asignados o resueltos manualmente desde la consola siguen en la cola
+    // hasta que salen, así que quien llama debe comprobar que sigue PENDIENTE.
+    public Ticket extraer() throws InterruptedException {
+        disponibles.acquire();
+        return extraerConPermiso();
+    }
+
+    // Como extraer(), pero tras la primera entrada se lleva sin esperar las que ya haya,
+    // hasta "maximo" en total, en el orden en que las elige la política
+    public void extraer(int maximo, List<Ticket> destino) throws InterruptedException {
+        disponibles.acquire();
+        destino.add(extraerConPermiso());
+        for (int i = 1; i < maximo && disponibles.tryAcquire(); i++) {
+            destino.add(extraerConPermiso());
+        }
+    }
+
+    private Ticket extraerConPermiso() {
+        while (true) {
+            // El permiso garantiza una entrada, pero otro técnico puede habérsela llevado
+            // mientras la política revisaba sus colas: en ese caso se vuelve a pedir
+            Ticket ticket = politica.extraer();
+            if (ticket != null) {
+                return ticket;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // ALTA → 0, MEDIA → 1, cualquier otro valor se trata como BAJA → 2
+    static int indicePrioridad(String prioridad) {
+        if ("ALTA".equalsIgnoreCase(prioridad)) {
+            return 0;
+        }
+        if ("MEDIA".equalsIgnoreCase(prioridad)) {
+            return 1;
+        }
+        return 2;
+    }
+}
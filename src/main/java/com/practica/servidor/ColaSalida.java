@@ -0,0 +1,296 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Avisos pendientes de enviar por una conexión. Quien notifica solo los deja aquí y
+// sigue; los escribe después un hilo de E/S, así que un cliente lento no frena a
+// los técnicos ni al resto del servidor.
+//
+// Hay como mucho una entrada por ticket: si llega otro aviso del mismo ticket antes
+// de enviarse el anterior, se queda solo el último estado (los intermedios sobran).
+// Si aun así se acumulan más tickets que el límite, el cliente no da abasto y se
+// le desconecta.
+//
+// Los avisos de un lote (ver enLote) se encolan todos antes de programar ninguna
+// cola, así que salen juntos en el mismo tramo y con un solo flush por conexión.
+class ColaSalida {
+
+    // Avisos que se escriben de una vez antes de volver a mirar la cola
+    static final int TRAMO = 64;
+
+    public interface Destino {
+
+        void escribirConfirmacion(Ticket ticket) throws IOException;
+
+        void escribirActualizacion(Ticket ticket) throws IOException;
+
+        void escribirOcupado(int reintentarMs) throws IOException;
+    }
+
+    // Colas que el hilo actual programará al terminar su lote; null fuera de un lote
+    private static final ThreadLocal<List<ColaSalida>> LOTE = new ThreadLocal<>();
+
+    private final OutputStream salida;
+    private final int limite;
+    private final MetricasServidor metricas;
+    private final Consumer<ColaSalida> programar;
+    private final Runnable alCerrar;
+
+    // Por id de ticket, en orden de llegada del primer aviso. Los rechazos no tienen
+    // ticket y usan claves negativas. Todo con el monitor de la cola.
+    private final Map<Integer, Aviso> pendientes = new LinkedHashMap<>();
+    private int ultimoRechazo = 0;
+    private boolean programada = false;
+    private boolean cerrarAlVaciar = false;
+    private boolean cerrada = false;
+
+    // programar se llama cuando la cola pasa a tener trabajo y nadie la está vaciando:
+    // debe hacer que un hilo de E/S llame a escribirPendientes() hasta que devuelva 0.
+    // alCerrar (puede ser null) cierra la conexión cuando la cola se cierra.
+    ColaSalida(OutputStream salida, int limite, MetricasServidor metricas,
+               Consumer<ColaSalida> programar, Runnable alCerrar) {
+        this.salida = salida;
+        this.limite = limite;
+        this.metricas = metricas;
+        this.programar = programar;
+        this.alCerrar = alCerrar;
+    }
+
+    public void confirmar(Destino destino, Ticket ticket) throws IOException {
+        encolar(destino, ticket, true);
+    }
+
+    public void actualizar(Destino destino, Ticket ticket) throws IOException {
+        encolar(destino, ticket, false);
+    }
+
+    public void rechazar(Destino destino, int reintentarMs) throws IOException {
+        boolean avisar;
+        synchronized (this) {
+            ultimoRechazo = ultimoRechazo == Integer.MIN_VALUE ? -1 : ultimoRechazo - 1;
+            avisoNuevo(ultimoRechazo, destino).reintentarMs = reintentarMs;
+            avisar = marcarProgramada();
+        }
+        if (avisar) {
+            programarOAplazar();
+        }
+    }
+
+    private void encolar(Destino destino, Ticket ticket, boolean confirmacion) throws IOException {
+        // Copia del estado de ahora: lo que se envíe debe ser este estado, no el que tenga después
+        Ticket copia = copiar(ticket);
+        boolean avisar;
+        synchronized (this) {
+            Aviso aviso = pendientes.get(ticket.getId());
+            if (aviso == null) {
+                aviso = avisoNuevo(ticket.getId(), destino);
+            }
+            if (confirmacion) {
+                aviso.confirmacion = copia;
+            } else {
+                aviso.actualizacion = copia;
+            }
+            avisar = marcarProgramada();
+        }
+        if (avisar) {
+            programarOAplazar();
+        }
+    }
+
+    // Con el monitor tomado
+    private Aviso avisoNuevo(int clave, Destino destino) throws IOException {
+        if (cerrada) {
+            throw new IOException("La conexión con el cliente está cerrada");
+        }
+        if (pendientes.size() >= limite) {
+            desbordar();
+            throw new IOException("Cliente demasiado lento: se supera la cola de salida");
+        }
+        Aviso aviso = new Aviso(destino);
+        pendientes.put(clave, aviso);
+        return aviso;
+    }
+
+    // Ejecuta "avisos" aplazando la programación de las colas hasta el final, para que
+    // el hilo de E/S encuentre ya todo el lote. Dentro de otro lote no abre uno nuevo.
+    static void enLote(Runnable avisos) {
+        if (LOTE.get() != null) {
+            avisos.run();
+            return;
+        }
+        List<ColaSalida> aProgramar = new ArrayList<>();
+        LOTE.set(aProgramar);
+        try {
+            avisos.run();
+        } finally {
+            LOTE.remove();
+            for (ColaSalida cola : aProgramar) {
+                cola.programar.accept(cola);
+            }
+        }
+    }
+
+    // Cada cola entra como mucho una vez por lote: hasta que se programa sigue marcada
+    private void programarOAplazar() {
+        List<ColaSalida> lote = LOTE.get();
+        if (lote != null) {
+            lote.add(this);
+        } else {
+            programar.accept(this);
+        }
+    }
+
+    // Con el monitor tomado: true si quien encola debe programar la cola
+    private boolean marcarProgramada() {
+        boolean avisar = !programada;
+        programada = true;
+        return avisar;
+    }
+
+    // Tras enviar lo pendiente, la cola se cierra (y con ella la conexión, si hay alCerrar)
+    public void cerrarAlVaciar() {
+        boolean avisar;
+        synchronized (this) {
+            if (cerrada) {
+                return;
+            }
+            cerrarAlVaciar = true;
+            avisar = marcarProgramada();
+        }
+        if (avisar) {
+            programarOAplazar();
+        }
+    }
+
+    // Escribe hasta "maximo" avisos y devuelve cuántos escribió. Devuelve 0 cuando la
+    // cola queda vacía; a partir de ahí, el siguiente aviso vuelve a programarla.
+    // Solo un hilo a la vez: el que la cola programó.
+    public int escribirPendientes(int maximo) throws IOException {
+        List<Aviso> tramo = new ArrayList<>(Math.min(maximo, TRAMO));
+        boolean cerrarAhora = false;
+        synchronized (this) {
+            if (cerrada) {
+                return 0;
+            }
+            Iterator<Aviso> iterador = pendientes.values().iterator();
+            while (iterador.hasNext() && tramo.size() < maximo) {
+                tramo.add(iterador.next());
+                iterador.remove();
+            }
+            if (tramo.isEmpty()) {
+                programada = false;
+                cerrarAhora = cerrarAlVaciar;
+            }
+        }
+        if (cerrarAhora) {
+            cerrar();
+            return 0;
+        }
+        if (tramo.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            for (Aviso aviso : tramo) {
+                aviso.escribir();
+            }
+            salida.flush();
+        } catch (IOException e) {
+            metricas.notificacionesPerdidas(contarActualizaciones(tramo));
+            cerrar();
+            throw e;
+        }
+        return tramo.size();
+    }
+
+    // Para hilos de E/S bloqueantes: vacía la cola entera y, si falla, la da por cerrada
+    public void vaciar() {
+        try {
+            while (escribirPendientes(TRAMO) > 0) {
+                // Se sigue hasta que no quede nada
+            }
+        } catch (IOException e) {
+            // La cola ya se cerró al fallar la escritura
+        }
+    }
+
+    public void cerrar() {
+        List<Aviso> descartados;
+        synchronized (this) {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            descartados = new ArrayList<>(pendientes.values());
+            pendientes.clear();
+        }
+        metricas.notificacionesPerdidas(contarActualizaciones(descartados));
+        if (alCerrar != null) {
+            alCerrar.run();
+        }
+    }
+
+    // Con el monitor tomado: el cliente no lee al ritmo que se le escribe
+    private void desbordar() {
+        metricas.clienteDesbordado();
+        cerrada = true;
+        int descartadas = contarActualizaciones(pendientes.values());
+        pendientes.clear();
+        metricas.notificacionesPerdidas(descartadas);
+        if (alCerrar != null) {
+            alCerrar.run();
+        }
+    }
+
+    private static int contarActualizaciones(Iterable<Aviso> avisos) {
+        int cantidad = 0;
+        for (Aviso aviso : avisos) {
+            if (aviso.actualizacion != null) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    private static Ticket copiar(Ticket ticket) {
+        Ticket copia = new Ticket(ticket.getNombreCliente(), ticket.getDescripcion(), ticket.getPrioridad());
+        copia.setId(ticket.getId());
+        copia.setEstado(ticket.getEstado());
+        copia.setTecnicoAsignado(ticket.getTecnicoAsignado());
+        return copia;
+    }
+
+    // Lo pendiente de un ticket: la confirmación (si aún no salió) y su último estado
+    private static class Aviso {
+
+        private final Destino destino;
+        private Ticket confirmacion;
+        private Ticket actualizacion;
+        private int reintentarMs;
+
+        Aviso(Destino destino) {
+            this.destino = destino;
+        }
+
+        void escribir() throws IOException {
+            if (reintentarMs > 0) {
+                destino.escribirOcupado(reintentarMs);
+            }
+            if (confirmacion != null) {
+                destino.escribirConfirmacion(confirmacion);
+            }
+            if (actualizacion != null) {
+                destino.escribirActualizacion(actualizacion);
+            }
+        }
+    }
+}
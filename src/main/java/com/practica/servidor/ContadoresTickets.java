@@ -0,0 +1,46 @@
+package com.practica.servidor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Número de tickets por estado y prioridad, actualizado en cada transición para que
+// consultar las estadísticas no tenga que recorrer el historial.
+class ContadoresTickets {
+
+    // [estado][prioridad], con los mismos códigos que el protocolo binario
+    private final LongAdder[][] contadores = new LongAdder[3][3];
+
+    ContadoresTickets() {
+        for (LongAdder[] porPrioridad : contadores) {
+            for (int i = 0; i < porPrioridad.length; i++) {
+                porPrioridad[i] = new LongAdder();
+            }
+        }
+    }
+
+    // Estado y prioridad con los códigos del protocolo binario, como en get()
+    public void agregar(int estado, int prioridad) {
+        contadores[estado][prioridad].increment();
+    }
+
+    public void mover(int prioridad, int estadoAnterior, int estadoNuevo) {
+        if (estadoAnterior != estadoNuevo) {
+            contadores[estadoAnterior][prioridad].decrement();
+            contadores[estadoNuevo][prioridad].increment();
+        }
+    }
+
+    // Con los códigos del protocolo binario: estado PENDIENTE=0..., prioridad ALTA=0...
+    public long get(int estado, int prioridad) {
+        return contadores[estado][prioridad].sum();
+    }
+
+    public EstadisticasTickets instantanea() {
+        long[][] valores = new long[3][3];
+        for (int estado = 0; estado < 3; estado++) {
+            for (int prioridad = 0; prioridad < 3; prioridad++) {
+                valores[estado][prioridad] = contadores[estado][prioridad].sum();
+            }
+        }
+        return new EstadisticasTickets(valores);
+    }
+}
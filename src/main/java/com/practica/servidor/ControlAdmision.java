@@ -0,0 +1,112 @@
+package com.practica.servidor;
+
+import com.practica.util.Protocolo;
+import com.practica.util.Ticket;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Límites que protegen al servidor de una avalancha de tickets o de conexiones.
+// Por encima de ellos no se acepta nada más: se responde "ocupado" con el tiempo
+// sugerido para reintentar y el cliente vuelve a probar más tarde.
+//
+//   -Dhelpdesk.maxPendientes=100000       tickets PENDIENTE en total (0 = sin límite)
+//   -Dhelpdesk.maxPendientesAlta=0        tickets PENDIENTE de cada prioridad (0 = sin límite)
+//   -Dhelpdesk.maxPendientesMedia=0
+//   -Dhelpdesk.maxPendientesBaja=0
+//   -Dhelpdesk.maxConexiones=10000        conexiones de clientes abiertas a la vez (0 = sin límite)
+//   -Dhelpdesk.reintentarMs=1000          tiempo sugerido al rechazar
+//
+// Solo se aplica a lo que llega por red: lo que se registra desde la consola entra siempre.
+class ControlAdmision {
+
+    // Lo que ve un cliente del protocolo de objetos en lugar de la confirmación
+    static final String PREFIJO_OCUPADO = "OCUPADO:";
+
+    private final int maxPendientes = Integer.getInteger("helpdesk.maxPendientes", 100_000);
+    private final int[] maxPendientesPorPrioridad = {
+        Integer.getInteger("helpdesk.maxPendientesAlta", 0),
+        Integer.getInteger("helpdesk.maxPendientesMedia", 0),
+        Integer.getInteger("helpdesk.maxPendientesBaja", 0)
+    };
+    private final int maxConexiones = Integer.getInteger("helpdesk.maxConexiones", 10_000);
+    private final int reintentarMs = Integer.getInteger("helpdesk.reintentarMs", 1000);
+
+    private final AtomicInteger conexiones = new AtomicInteger();
+
+    public int getReintentarMs() {
+        return reintentarMs;
+    }
+
+    // Con el cerrojo del Servidor tomado, para que dos registros no pasen a la vez el último hueco
+    public boolean admitirTicket(ContadoresTickets contadores, String prioridad) {
+        int indice = ColaPendientes.indicePrioridad(prioridad);
+        if (superado(contadores.get(0, indice), maxPendientesPorPrioridad[indice])) {
+            return false;
+        }
+        if (maxPendientes <= 0) {
+            return true;
+        }
+        long pendientes = contadores.get(0, 0) + contadores.get(0, 1) + contadores.get(0, 2);
+        return !superado(pendientes, maxPendientes);
+    }
+
+    // Igual que admitirTicket para cada ticket de un lote, contando como pendientes los
+    // que ya se admitieron del propio lote. Marca en "admitidos" cuáles caben y devuelve cuántos.
+    public int admitirLote(ContadoresTickets contadores, List<Ticket> tickets, boolean[] admitidos) {
+        long[] pendientes = {contadores.get(0, 0), contadores.get(0, 1), contadores.get(0, 2)};
+        long total = pendientes[0] + pendientes[1] + pendientes[2];
+        int cantidad = 0;
+        for (int i = 0; i < tickets.size(); i++) {
+            int indice = ColaPendientes.indicePrioridad(tickets.get(i).getPrioridad());
+            admitidos[i] = !superado(pendientes[indice], maxPendientesPorPrioridad[indice])
+                && (maxPendientes <= 0 || !superado(total, maxPendientes));
+            if (admitidos[i]) {
+                pendientes[indice]++;
+                total++;
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    // Si devuelve true, quien abrió la conexión debe llamar a conexionCerrada() al cerrarla
+    public boolean abrirConexion() {
+        if (maxConexiones <= 0) {
+            conexiones.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int actuales = conexiones.get();
+            if (actuales >= maxConexiones) {
+                return false;
+            }
+            if (conexiones.compareAndSet(actuales, actuales + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void conexionCerrada() {
+        conexiones.decrementAndGet();
+    }
+
+    // Respuesta a una conexión que supera el límite, en el protocolo que hable el cliente
+    public void escribirRechazoConexion(OutputStream salida, boolean binario) throws IOException {
+        if (binario) {
+            salida.write(Protocolo.cabeceraOcupado(reintentarMs));
+            salida.flush();
+        } else {
+            ObjectOutputStream salidaObjetos = new ObjectOutputStream(salida);
+            salidaObjetos.writeObject(PREFIJO_OCUPADO + reintentarMs);
+            salidaObjetos.flush();
+        }
+    }
+
+    private static boolean superado(long valor, int limite) {
+        return limite > 0 && valor >= limite;
+    }
+}
@@ -0,0 +1,501 @@
+package com.practica.servidor;
+
+import com.practica.util.Protocolo;
+import com.practica.util.Ticket;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Registro de escritura anticipada (write-ahead log) de los tickets.
+//
+// Cada cambio de estado se anota al final de un fichero de solo anexado:
+//
+//   [int longitud][byte tipo][datos][int crc32]
+//
+//   REGISTRO   int id, nombreCliente, descripcion, byte prioridad
+//   ASIGNACION int id, tecnicoAsignado
+//   RESOLUCION int id
+//
+// anotar() solo copia el registro a memoria; un hilo escritor vuelca de golpe todo
+// lo acumulado y hace un único force() por tanda (group commit). Quien necesita
+// que su cambio sea durable antes de avisar a nadie llama a esperarDurable(), que
+// se libera con el force() de su tanda sin bloquear a los que siguen anotando.
+// Quien no puede bloquearse (el hilo de un Selector) usa cuandoDurable(): su acción
+// la ejecuta el propio escritor tras ese force().
+//
+// El diario se reparte en segmentos (tickets-NNNNNN.diario). Cada cierto tiempo el
+// Servidor abre un segmento nuevo con rotar() y escribe una instantánea de todos sus
+// tickets (instantanea-NNNNNN.dat, con el número del segmento nuevo); una vez en disco,
+// los segmentos anteriores y las instantáneas viejas se borran.
+//
+// La instantánea se escribe sin detener al Servidor, así que puede recoger algún cambio
+// ya anotado en el segmento nuevo. No importa: al arrancar, reproducir() carga la última
+// instantánea válida y vuelve a aplicar encima los segmentos desde el suyo, en orden,
+// con lo que cada ticket termina en su último estado. Los segmentos se recorren mapeados
+// en memoria y la lectura se detiene en el primer registro incompleto o corrupto (una
+// escritura cortada por una caída).
+class DiarioTickets implements Closeable {
+
+    static final byte REGISTRO   = 1;
+    static final byte ASIGNACION = 2;
+    static final byte RESOLUCION = 3;
+
+    // Mismos códigos de prioridad y estado que el protocolo binario
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+    private static final String[] ESTADOS     = {"PENDIENTE", "EN_PROCESO", "RESUELTO"};
+
+    private static final int MAGIA_INSTANTANEA = 0x48444931; // "HDI1"
+
+    // Lo que el Servidor hace con cada ticket de la instantánea y cada registro del diario
+    interface Receptor {
+        void ticket(int id, String nombreCliente, String descripcion, String prioridad,
+                    String estado, String tecnico);
+        void registro(int id, String nombreCliente, String descripcion, String prioridad);
+        void asignacion(int id, String tecnico);
+        void resolucion(int id);
+    }
+
+    private final Path directorio;
+    private volatile FileChannel canal;
+    private int segmentoActual;
+    private long posicionUltimaInstantanea;
+    private Thread escritor;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition hayDatos = cerrojo.newCondition();
+    private final Condition hayDurable = cerrojo.newCondition();
+
+    // Los productores llenan "acumulado"; el escritor lo intercambia por "enVuelo" y lo vuelca
+    private ByteBuffer acumulado = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer enVuelo = ByteBuffer.allocate(64 * 1024);
+    private long posicionAnotada;
+    private long posicionDurable;
+    private volatile boolean fallido = false;
+    private volatile boolean cerrado = false;
+
+    // Acciones de cuandoDurable() a la espera de su tanda, de menor a mayor posición
+    private final PriorityQueue<AccionDurable> alSerDurable =
+        new PriorityQueue<>(Comparator.comparingLong(AccionDurable::posicion));
+
+    private record AccionDurable(long posicion, Runnable accion) {
+    }
+
+    DiarioTickets(Path directorio) throws IOException {
+        this.directorio = directorio;
+        Files.createDirectories(directorio);
+        // Diario de un solo fichero de versiones anteriores: pasa a ser el primer segmento
+        Path antiguo = directorio.resolve("tickets.diario");
+        if (Files.exists(antiguo)) {
+            Files.move(antiguo, segmento(0));
+        }
+    }
+
+    // Reconstruye el estado y deja el último segmento listo para seguir anotando tras su último registro válido
+    public void reproducir(Receptor receptor) throws IOException {
+        int desde = cargarInstantanea(receptor);
+        List<Integer> segmentos = numerosDe("tickets-", ".diario");
+        segmentos.removeIf(numero -> numero < desde);
+        segmentoActual = segmentos.isEmpty() ? desde : segmentos.get(segmentos.size() - 1);
+
+        for (int numero : segmentos) {
+            try (FileChannel lectura = FileChannel.open(segmento(numero), StandardOpenOption.READ)) {
+                long tamaño = lectura.size();
+                long valido = tamaño == 0 ? 0 : reproducir(lectura.map(FileChannel.MapMode.READ_ONLY, 0, tamaño), receptor);
+                if (valido < tamaño) {
+                    System.out.println("Diario: se descartan " + (tamaño - valido) + " bytes incompletos de " + segmento(numero).getFileName());
+                }
+                if (numero == segmentoActual) {
+                    posicionAnotada = valido;
+                }
+            }
+        }
+
+        canal = abrirSegmento(segmentoActual);
+        if (canal.size() > posicionAnotada) {
+            canal.truncate(posicionAnotada);
+        }
+        canal.position(posicionAnotada);
+        posicionDurable = posicionAnotada;
+        posicionUltimaInstantanea = posicionAnotada;
+
+        escritor = new Thread(this::escribir, "diario-escritor");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    private long reproducir(ByteBuffer datos, Receptor receptor) {
+        CRC32 crc = new CRC32();
+        while (datos.remaining() >= 4) {
+            int inicio = datos.position();
+            int longitud = datos.getInt();
+            if (longitud <= 0 || datos.remaining() < longitud + 4) {
+                return inicio;
+            }
+            crc.reset();
+            crc.update(datos.slice(datos.position(), longitud));
+            if ((int) crc.getValue() != datos.getInt(datos.position() + longitud)) {
+                return inicio;
+            }
+            byte tipo = datos.get();
+            int id = datos.getInt();
+            switch (tipo) {
+                case REGISTRO:
+                    String nombreCliente = leerTexto(datos);
+                    String descripcion   = leerTexto(datos);
+                    receptor.registro(id, nombreCliente, descripcion, PRIORIDADES[datos.get()]);
+                    break;
+                case ASIGNACION:
+                    receptor.asignacion(id, leerTexto(datos));
+                    break;
+                case RESOLUCION:
+                    receptor.resolucion(id);
+                    break;
+                default:
+                    return inicio;
+            }
+            datos.position(inicio + 4 + longitud + 4);
+        }
+        return datos.position();
+    }
+
+    // ──────────────────────────────────────────────
+    // Anotación
+    // ──────────────────────────────────────────────
+
+    public long anotarRegistro(Ticket ticket) {
+        byte[] nombreCliente = ticket.getNombreCliente().getBytes(StandardCharsets.UTF_8);
+        byte[] descripcion   = ticket.getDescripcion().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer registro = iniciar(REGISTRO, ticket.getId(), 4 + nombreCliente.length + 4 + descripcion.length + 1);
+        registro.putInt(nombreCliente.length).put(nombreCliente);
+        registro.putInt(descripcion.length).put(descripcion);
+        registro.put(Protocolo.codigoPrioridad(ticket.getPrioridad()));
+        return anotar(registro);
+    }
+
+    public long anotarAsignacion(int id, String tecnico) {
+        byte[] nombre = tecnico.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer registro = iniciar(ASIGNACION, id, 4 + nombre.length);
+        registro.putInt(nombre.length).put(nombre);
+        return anotar(registro);
+    }
+
+    public long anotarResolucion(int id) {
+        return anotar(iniciar(RESOLUCION, id, 0));
+    }
+
+    private static ByteBuffer iniciar(byte tipo, int id, int longitudDatos) {
+        ByteBuffer registro = ByteBuffer.allocate(4 + 1 + 4 + longitudDatos + 4);
+        registro.putInt(1 + 4 + longitudDatos);
+        registro.put(tipo);
+        registro.putInt(id);
+        return registro;
+    }
+
+    // Devuelve la posición del diario tras este registro, para esperarDurable()
+    private long anotar(ByteBuffer registro) {
+        if (fallido) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(registro.array(), 4, registro.position() - 4);
+        registro.putInt((int) crc.getValue());
+        registro.flip();
+
+        cerrojo.lock();
+        try {
+            if (acumulado.remaining() < registro.remaining()) {
+                acumulado = ampliar(acumulado, registro.remaining());
+            }
+            acumulado.put(registro);
+            posicionAnotada += registro.limit();
+            hayDatos.signal();
+            return posicionAnotada;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Instantáneas y compactación
+    // ──────────────────────────────────────────────
+
+    public boolean hayCambiosDesdeUltimaInstantanea() {
+        cerrojo.lock();
+        try {
+            return !fallido && posicionAnotada != posicionUltimaInstantanea;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Empieza un segmento nuevo y devuelve su número. Se llama con el Servidor bloqueado,
+    // de modo que nadie anota mientras tanto: basta con esperar a que lo ya anotado esté
+    // en disco para que el escritor quede libre y se pueda cambiar de fichero.
+    public int rotar() throws IOException {
+        long hasta;
+        cerrojo.lock();
+        try {
+            hasta = posicionAnotada;
+        } finally {
+            cerrojo.unlock();
+        }
+        esperarDurable(hasta);
+
+        cerrojo.lock();
+        try {
+            canal.close();
+            segmentoActual++;
+            canal = abrirSegmento(segmentoActual);
+            posicionUltimaInstantanea = posicionAnotada;
+            return segmentoActual;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Escribe la instantánea en un fichero temporal, lo renombra de forma atómica y
+    // solo entonces borra los segmentos y las instantáneas que ya no hacen falta.
+    // Los tickets se piden de uno en uno, así que no tienen que estar todos en memoria.
+    public void escribirInstantanea(int segmento, int cantidad, Iterator<Ticket> tickets) throws IOException {
+        Path temporal = directorio.resolve("instantanea.tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream datos = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(salida), crc), 64 * 1024));
+            datos.writeInt(MAGIA_INSTANTANEA);
+            datos.writeInt(segmento);
+            datos.writeInt(cantidad);
+            while (tickets.hasNext()) {
+                Ticket ticket = tickets.next();
+                datos.writeInt(ticket.getId());
+                escribirTexto(datos, ticket.getNombreCliente());
+                escribirTexto(datos, ticket.getDescripcion());
+                datos.writeByte(Protocolo.codigoPrioridad(ticket.getPrioridad()));
+                datos.writeByte(Protocolo.codigoEstado(ticket.getEstado()));
+                escribirTexto(datos, ticket.getTecnicoAsignado());
+            }
+            datos.flush();
+            // El CRC va fuera del flujo que lo calcula
+            salida.write(ByteBuffer.allocate(4).putInt(0, (int) crc.getValue()));
+            salida.force(true);
+        }
+        Files.move(temporal, instantanea(segmento), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (int numero : numerosDe("tickets-", ".diario")) {
+            if (numero < segmento) {
+                Files.deleteIfExists(segmento(numero));
+            }
+        }
+        for (int numero : numerosDe("instantanea-", ".dat")) {
+            if (numero < segmento) {
+                Files.deleteIfExists(instantanea(numero));
+            }
+        }
+    }
+
+    // Carga la instantánea válida más reciente y devuelve desde qué segmento hay que reproducir
+    private int cargarInstantanea(Receptor receptor) throws IOException {
+        List<Integer> instantaneas = numerosDe("instantanea-", ".dat");
+        for (int i = instantaneas.size() - 1; i >= 0; i--) {
+            int numero = instantaneas.get(i);
+            try (FileChannel lectura = FileChannel.open(instantanea(numero), StandardOpenOption.READ)) {
+                long tamaño = lectura.size();
+                if (tamaño < 16) {
+                    continue;
+                }
+                MappedByteBuffer datos = lectura.map(FileChannel.MapMode.READ_ONLY, 0, tamaño);
+                CRC32 crc = new CRC32();
+                crc.update(datos.slice(0, (int) tamaño - 4));
+                if ((int) crc.getValue() != datos.getInt((int) tamaño - 4)
+                        || datos.getInt() != MAGIA_INSTANTANEA || datos.getInt() != numero) {
+                    System.out.println("Diario: se ignora la instantánea dañada " + instantanea(numero).getFileName());
+                    continue;
+                }
+                int cantidad = datos.getInt();
+                for (int j = 0; j < cantidad; j++) {
+                    int id = datos.getInt();
+                    String nombreCliente = leerTexto(datos);
+                    String descripcion   = leerTexto(datos);
+                    String prioridad     = PRIORIDADES[datos.get()];
+                    String estado        = ESTADOS[datos.get()];
+                    receptor.ticket(id, nombreCliente, descripcion, prioridad, estado, leerTexto(datos));
+                }
+                return numero;
+            }
+        }
+        return 0;
+    }
+
+    private FileChannel abrirSegmento(int numero) throws IOException {
+        return FileChannel.open(segmento(numero),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private Path segmento(int numero) {
+        return directorio.resolve(String.format("tickets-%06d.diario", numero));
+    }
+
+    private Path instantanea(int numero) {
+        return directorio.resolve(String.format("instantanea-%06d.dat", numero));
+    }
+
+    // Números de los ficheros del directorio con ese prefijo y sufijo, de menor a mayor
+    private List<Integer> numerosDe(String prefijo, String sufijo) throws IOException {
+        List<Integer> numeros = new ArrayList<>();
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(directorio, prefijo + "*" + sufijo)) {
+            for (Path fichero : ficheros) {
+                String nombre = fichero.getFileName().toString();
+                try {
+                    numeros.add(Integer.parseInt(nombre.substring(prefijo.length(), nombre.length() - sufijo.length())));
+                } catch (NumberFormatException e) {
+                    // No es un fichero del diario
+                }
+            }
+        }
+        Collections.sort(numeros);
+        return numeros;
+    }
+
+    public void esperarDurable(long posicion) {
+        cerrojo.lock();
+        try {
+            while (posicionDurable < posicion && !fallido) {
+                hayDurable.awaitUninterruptibly();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Como esperarDurable(), pero sin bloquear: la acción se ejecuta en el hilo escritor
+    // tras el force() que deja la posición en disco, o enseguida en este hilo si ya lo
+    // está. Las acciones salen en orden de posición y deben volver pronto: mientras se
+    // ejecutan, la siguiente tanda espera.
+    public void cuandoDurable(long posicion, Runnable accion) {
+        cerrojo.lock();
+        try {
+            if (posicionDurable < posicion && !fallido) {
+                alSerDurable.add(new AccionDurable(posicion, accion));
+                return;
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        accion.run();
+    }
+
+    private void escribir() {
+        while (true) {
+            long hasta;
+            cerrojo.lock();
+            try {
+                while (acumulado.position() == 0 && !cerrado) {
+                    hayDatos.awaitUninterruptibly();
+                }
+                if (acumulado.position() == 0) {
+                    return; // Cerrado y sin nada pendiente
+                }
+                ByteBuffer lleno = acumulado;
+                acumulado = enVuelo;
+                enVuelo = lleno;
+                hasta = posicionAnotada;
+            } finally {
+                cerrojo.unlock();
+            }
+
+            try {
+                enVuelo.flip();
+                while (enVuelo.hasRemaining()) {
+                    canal.write(enVuelo);
+                }
+                canal.force(false);
+                enVuelo.clear();
+            } catch (IOException e) {
+                // Sin diario el servidor sigue funcionando en memoria, pero ya sin durabilidad
+                System.out.println("Diario: no se pudo escribir, se continúa sin durabilidad: " + e.getMessage());
+                fallido = true;
+            }
+
+            List<Runnable> listas = new ArrayList<>();
+            cerrojo.lock();
+            try {
+                posicionDurable = hasta;
+                hayDurable.signalAll();
+                // Sin durabilidad ya no hay nada que esperar: salen todas
+                while (!alSerDurable.isEmpty() && (fallido || alSerDurable.peek().posicion() <= hasta)) {
+                    listas.add(alSerDurable.poll().accion());
+                }
+            } finally {
+                cerrojo.unlock();
+            }
+            for (Runnable accion : listas) {
+                try {
+                    accion.run();
+                } catch (RuntimeException e) {
+                    System.out.println("Diario: falló una acción tras escribir: " + e);
+                }
+            }
+            if (fallido) {
+                return;
+            }
+        }
+    }
+
+    // Vuelca lo que quede pendiente antes de cerrar el fichero
+    @Override
+    public void close() throws IOException {
+        cerrojo.lock();
+        try {
+            cerrado = true;
+            hayDatos.signal();
+        } finally {
+            cerrojo.unlock();
+        }
+        if (escritor != null) {
+            try {
+                escritor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Sin canal si reproducir() no llegó a terminar
+        if (canal != null) {
+            canal.close();
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream datos, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        datos.writeInt(bytes.length);
+        datos.write(bytes);
+    }
+
+    private static String leerTexto(ByteBuffer datos) {
+        byte[] bytes = new byte[datos.getInt()];
+        datos.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer ampliar(ByteBuffer buffer, int necesario) {
+        ByteBuffer mayor = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + necesario));
+        buffer.flip();
+        mayor.put(buffer);
+        return mayor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.practica.servidor;
+
+import com.practica.util.Protocolo;
+
+// Copia de los contadores del Servidor en un momento dado. Cada contador se lee por
+// separado, así que un ticket que cambia justo entonces puede contar en el estado
+// viejo o en el nuevo, pero consultarla cuesta lo mismo con diez tickets que con un millón.
+public class EstadisticasTickets {
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+
+    // [estado][prioridad]
+    private final long[][] valores;
+
+    EstadisticasTickets(long[][] valores) {
+        this.valores = valores;
+    }
+
+    public long getPendientes() {
+        return getPorEstado("PENDIENTE");
+    }
+
+    public long getEnProceso() {
+        return getPorEstado("EN_PROCESO");
+    }
+
+    public long getResueltos() {
+        return getPorEstado("RESUELTO");
+    }
+
+    public long getPorEstado(String estado) {
+        long total = 0;
+        for (long valor : valores[Protocolo.codigoEstado(estado)]) {
+            total += valor;
+        }
+        return total;
+    }
+
+    public long getPorPrioridad(String prioridad) {
+        int indice = ColaPendientes.indicePrioridad(prioridad);
+        long total = 0;
+        for (long[] porPrioridad : valores) {
+            total += porPrioridad[indice];
+        }
+        return total;
+    }
+
+    public long get(String estado, String prioridad) {
+        return valores[Protocolo.codigoEstado(estado)][ColaPendientes.indicePrioridad(prioridad)];
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (String prioridad : PRIORIDADES) {
+            total += getPorPrioridad(prioridad);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,25 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+// Cambio de estado de un ticket, publicado por el Servidor a sus suscriptores
+public class EventoTicket {
+
+    public enum Tipo { CREADO, ASIGNADO, RESUELTO }
+
+    private final Tipo tipo;
+    private final Ticket ticket;
+
+    public EventoTicket(Tipo tipo, Ticket ticket) {
+        this.tipo = tipo;
+        this.ticket = ticket;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
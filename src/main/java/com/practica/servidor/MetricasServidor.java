@@ -0,0 +1,298 @@
+package com.practica.servidor;
+
+import com.practica.util.HistogramaLatencias;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * MetricasServidor — Contadores y tiempos del Servidor en funcionamiento.
+ *
+ * Lo que ya cuentan los contadores por estado y prioridad (tickets pendientes por
+ * prioridad, en proceso...) se lee de ellos al consultar; aquí solo se suma lo que
+ * no está en ningún otro sitio. Anotar algo cuesta un LongAdder o un cubo del
+ * histograma, sin cerrojos ni memoria nueva. El instante de registro de cada ticket,
+ * con el que se mide cuánto tarda en asignarse y en resolverse, lo guarda el Servidor
+ * junto al resto del ticket y llega aquí en cada anotación.
+ *
+ * Se consultan por JMX y, si -Dhelpdesk.metricasPuerto no es 0 (1901 por defecto),
+ * en http://127.0.0.1:1901/metrics con el formato de texto de Prometheus.
+ */
+public class MetricasServidor implements MetricasServidorMBean {
+
+    private static final String[] ESTADOS     = {"PENDIENTE", "EN_PROCESO", "RESUELTO"};
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+    private static final double[] CUANTILES   = {0.5, 0.9, 0.99, 0.999};
+
+    private final Supplier<EstadisticasTickets> estadisticas;
+
+    private final LongAdder ticketsRegistrados     = new LongAdder();
+    private final LongAdder conexionesAceptadas    = new LongAdder();
+    private final LongAdder conexionesActivas      = new LongAdder();
+    private final LongAdder notificacionesEnviadas = new LongAdder();
+    private final LongAdder notificacionesFallidas = new LongAdder();
+    private final LongAdder clientesDesbordados    = new LongAdder();
+    private final LongAdder ticketsRechazados      = new LongAdder();
+    private final LongAdder conexionesRechazadas   = new LongAdder();
+
+    // En microsegundos
+    private final HistogramaLatencias tiempoAsignacion = new HistogramaLatencias();
+    private final HistogramaLatencias tiempoResolucion = new HistogramaLatencias();
+
+    MetricasServidor(Supplier<EstadisticasTickets> estadisticas) {
+        this.estadisticas = estadisticas;
+    }
+
+    // ──────────────────────────────────────────────
+    // Anotaciones desde el Servidor
+    // ──────────────────────────────────────────────
+
+    void ticketRegistrado() {
+        ticketsRegistrados.increment();
+    }
+
+    // instanteRegistro es el System.nanoTime() del registro; los tickets recuperados
+    // del diario no lo tienen (0) y no se miden
+    void ticketAsignado(long instanteRegistro) {
+        medirDesde(instanteRegistro, tiempoAsignacion);
+    }
+
+    void ticketResuelto(long instanteRegistro) {
+        medirDesde(instanteRegistro, tiempoResolucion);
+    }
+
+    private void medirDesde(long instante, HistogramaLatencias histograma) {
+        if (instante != 0) {
+            histograma.registrar(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - instante));
+        }
+    }
+
+    void notificacion(boolean entregada) {
+        (entregada ? notificacionesEnviadas : notificacionesFallidas).increment();
+    }
+
+    // Avisos que ya estaban en una cola de salida cuando su conexión se cerró o se desbordó
+    void notificacionesPerdidas(int cantidad) {
+        if (cantidad > 0) {
+            notificacionesFallidas.add(cantidad);
+        }
+    }
+
+    void clienteDesbordado() {
+        clientesDesbordados.increment();
+    }
+
+    // Rechazos del control de admisión: el cliente recibió "ocupado"
+    void ticketRechazado() {
+        ticketsRechazados.increment();
+    }
+
+    void conexionRechazada() {
+        conexionesRechazadas.increment();
+    }
+
+    void conexionAbierta() {
+        conexionesAceptadas.increment();
+        conexionesActivas.increment();
+    }
+
+    void conexionCerrada() {
+        conexionesActivas.decrement();
+    }
+
+    // ──────────────────────────────────────────────
+    // Publicación
+    // ──────────────────────────────────────────────
+
+    void publicar() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(this, new ObjectName("com.practica.helpdesk:type=Metricas"));
+        } catch (Exception e) {
+            System.out.println("No se pudieron publicar las métricas por JMX: " + e.getMessage());
+        }
+
+        int puerto = Integer.getInteger("helpdesk.metricasPuerto", 1901);
+        if (puerto <= 0) {
+            return;
+        }
+        try {
+            // Solo en la interfaz local: las métricas no se exponen fuera de la máquina
+            HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), 0);
+            http.createContext("/metrics", intercambio -> {
+                byte[] cuerpo = formatoPrometheus().getBytes(StandardCharsets.UTF_8);
+                intercambio.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                intercambio.sendResponseHeaders(200, cuerpo.length);
+                try (OutputStream salida = intercambio.getResponseBody()) {
+                    salida.write(cuerpo);
+                }
+            });
+            http.start();
+        } catch (IOException e) {
+            System.out.println("No se pudo abrir el puerto de métricas " + puerto + ": " + e.getMessage());
+        }
+    }
+
+    public String formatoPrometheus() {
+        EstadisticasTickets actuales = estadisticas.get();
+        StringBuilder texto = new StringBuilder(2048);
+
+        contador(texto, "helpdesk_tickets_registrados_total", "Tickets registrados desde el arranque",
+            ticketsRegistrados.sum());
+
+        contador(texto, "helpdesk_tickets_rechazados_total", "Tickets rechazados por el control de admisión",
+            ticketsRechazados.sum());
+
+        cabecera(texto, "helpdesk_cola_pendientes", "Tickets esperando técnico por prioridad", "gauge");
+        for (String prioridad : PRIORIDADES) {
+            texto.append("helpdesk_cola_pendientes{prioridad=\"").append(prioridad).append("\"} ")
+                 .append(actuales.get("PENDIENTE", prioridad)).append('\n');
+        }
+
+        cabecera(texto, "helpdesk_tickets", "Tickets por estado y prioridad", "gauge");
+        for (String estado : ESTADOS) {
+            for (String prioridad : PRIORIDADES) {
+                texto.append("helpdesk_tickets{estado=\"").append(estado)
+                     .append("\",prioridad=\"").append(prioridad).append("\"} ")
+                     .append(actuales.get(estado, prioridad)).append('\n');
+            }
+        }
+
+        resumen(texto, "helpdesk_tiempo_asignacion_segundos",
+            "Tiempo desde el registro hasta que un técnico toma el ticket", tiempoAsignacion);
+        resumen(texto, "helpdesk_tiempo_resolucion_segundos",
+            "Tiempo desde el registro hasta que el ticket queda resuelto", tiempoResolucion);
+
+        cabecera(texto, "helpdesk_conexiones_activas", "Conexiones de clientes abiertas", "gauge");
+        texto.append("helpdesk_conexiones_activas ").append(conexionesActivas.sum()).append('\n');
+        contador(texto, "helpdesk_conexiones_total", "Conexiones aceptadas desde el arranque",
+            conexionesAceptadas.sum());
+        contador(texto, "helpdesk_conexiones_rechazadas_total",
+            "Conexiones rechazadas por superar el máximo de conexiones", conexionesRechazadas.sum());
+        contador(texto, "helpdesk_notificaciones_total", "Avisos puestos en la cola de salida de un cliente",
+            notificacionesEnviadas.sum());
+        contador(texto, "helpdesk_notificaciones_fallidas_total", "Avisos que no se pudieron entregar",
+            notificacionesFallidas.sum());
+        contador(texto, "helpdesk_clientes_desbordados_total",
+            "Clientes desconectados por no leer sus avisos a tiempo", clientesDesbordados.sum());
+        return texto.toString();
+    }
+
+    private static void cabecera(StringBuilder texto, String nombre, String ayuda, String tipo) {
+        texto.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n');
+        texto.append("# TYPE ").append(nombre).append(' ').append(tipo).append('\n');
+    }
+
+    private static void contador(StringBuilder texto, String nombre, String ayuda, long valor) {
+        cabecera(texto, nombre, ayuda, "counter");
+        texto.append(nombre).append(' ').append(valor).append('\n');
+    }
+
+    private static void resumen(StringBuilder texto, String nombre, String ayuda, HistogramaLatencias histograma) {
+        cabecera(texto, nombre, ayuda, "summary");
+        for (double cuantil : CUANTILES) {
+            texto.append(nombre).append("{quantile=\"").append(cuantil).append("\"} ")
+                 .append(segundos(histograma.percentil(cuantil * 100))).append('\n');
+        }
+        texto.append(nombre).append("_sum ").append(segundos(histograma.getSuma())).append('\n');
+        texto.append(nombre).append("_count ").append(histograma.getTotal()).append('\n');
+    }
+
+    private static String segundos(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+
+    // ──────────────────────────────────────────────
+    // Atributos JMX
+    // ──────────────────────────────────────────────
+
+    @Override
+    public long getTicketsRegistrados() {
+        return ticketsRegistrados.sum();
+    }
+
+    @Override
+    public long getPendientesAlta() {
+        return estadisticas.get().get("PENDIENTE", "ALTA");
+    }
+
+    @Override
+    public long getPendientesMedia() {
+        return estadisticas.get().get("PENDIENTE", "MEDIA");
+    }
+
+    @Override
+    public long getPendientesBaja() {
+        return estadisticas.get().get("PENDIENTE", "BAJA");
+    }
+
+    @Override
+    public long getEnProceso() {
+        return estadisticas.get().getEnProceso();
+    }
+
+    @Override
+    public long getTicketsRechazados() {
+        return ticketsRechazados.sum();
+    }
+
+    @Override
+    public long getConexionesRechazadas() {
+        return conexionesRechazadas.sum();
+    }
+
+    @Override
+    public long getConexionesActivas() {
+        return conexionesActivas.sum();
+    }
+
+    @Override
+    public long getConexionesAceptadas() {
+        return conexionesAceptadas.sum();
+    }
+
+    @Override
+    public long getNotificacionesEnviadas() {
+        return notificacionesEnviadas.sum();
+    }
+
+    @Override
+    public long getNotificacionesFallidas() {
+        return notificacionesFallidas.sum();
+    }
+
+    @Override
+    public long getClientesDesbordados() {
+        return clientesDesbordados.sum();
+    }
+
+    @Override
+    public double getTiempoAsignacionMedioMs() {
+        return tiempoAsignacion.getMedia() / 1000.0;
+    }
+
+    @Override
+    public double getTiempoAsignacionP99Ms() {
+        return tiempoAsignacion.percentil(99) / 1000.0;
+    }
+
+    @Override
+    public double getTiempoResolucionMedioMs() {
+        return tiempoResolucion.getMedia() / 1000.0;
+    }
+
+    @Override
+    public double getTiempoResolucionP99Ms() {
+        return tiempoResolucion.percentil(99) / 1000.0;
+    }
+}
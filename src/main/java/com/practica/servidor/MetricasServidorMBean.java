@@ -0,0 +1,38 @@
+package com.practica.servidor;
+
+// Atributos que MetricasServidor publica por JMX (com.practica.helpdesk:type=Metricas).
+// Los tiempos van en milisegundos y se cuentan desde el arranque.
+public interface MetricasServidorMBean {
+
+    long getTicketsRegistrados();
+
+    long getTicketsRechazados();
+
+    long getPendientesAlta();
+
+    long getPendientesMedia();
+
+    long getPendientesBaja();
+
+    long getEnProceso();
+
+    long getConexionesActivas();
+
+    long getConexionesAceptadas();
+
+    long getConexionesRechazadas();
+
+    long getNotificacionesEnviadas();
+
+    long getNotificacionesFallidas();
+
+    long getClientesDesbordados();
+
+    double getTiempoAsignacionMedioMs();
+
+    double getTiempoAsignacionP99Ms();
+
+    double getTiempoResolucionMedioMs();
+
+    double getTiempoResolucionP99Ms();
+}
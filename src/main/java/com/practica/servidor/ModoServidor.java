@@ -0,0 +1,25 @@
+package com.practica.servidor;
+
+// Forma en que el servidor atiende las conexiones de red.
+// Se elige al arrancar con -Dhelpdesk.modo=bloqueante|virtual|nio (por defecto, bloqueante).
+public enum ModoServidor {
+
+    // Un hilo por conexión, bloqueado durante toda la vida del ticket
+    BLOQUEANTE,
+
+    // Un hilo virtual por conexión; los técnicos también corren en hilos virtuales
+    VIRTUAL,
+
+    // Un número fijo de hilos de E/S, cada uno con su Selector, atiende todas las conexiones
+    NIO;
+
+    public static ModoServidor desdePropiedades() {
+        String valor = System.getProperty("helpdesk.modo", "bloqueante");
+        try {
+            return valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Modo de servidor desconocido: " + valor + ". Se usa BLOQUEANTE.");
+            return BLOQUEANTE;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.practica.servidor;
+
+// Orden en que Servidor.consultarPagina devuelve los tickets. Dentro de una misma
+// prioridad o de un mismo estado, los tickets van siempre en orden de id.
+public enum OrdenTickets {
+
+    ID,
+
+    // ALTA, MEDIA y BAJA
+    PRIORIDAD,
+
+    // PENDIENTE, EN_PROCESO y RESUELTO
+    ESTADO
+}
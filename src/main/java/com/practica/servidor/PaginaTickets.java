@@ -0,0 +1,33 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.util.List;
+
+// Un tramo de la vista de tickets pedida a Servidor.consultarPagina, junto con el
+// número de filas que tenía la vista entera en ese mismo momento.
+public class PaginaTickets {
+
+    private final int total;
+    private final int desde;
+    private final List<Ticket> tickets;
+
+    PaginaTickets(int total, int desde, List<Ticket> tickets) {
+        this.total = total;
+        this.desde = desde;
+        this.tickets = tickets;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    // Fila de la vista que ocupa el primer ticket de la página
+    public int getDesde() {
+        return desde;
+    }
+
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+}
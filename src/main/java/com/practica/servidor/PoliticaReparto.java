@@ -0,0 +1,37 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+// Decide qué ticket pendiente se lleva el siguiente técnico.
+// Se elige al arrancar con -Dhelpdesk.reparto=estricto|ponderado|envejecimiento
+// (por defecto, estricto) o se pasa directamente al constructor de Servidor.
+//
+// ColaPendientes lleva la cuenta de entradas y la espera de los técnicos; una política
+// solo guarda los tickets y elige. Debe admitir agregar() y extraer() desde varios
+// hilos a la vez, y ninguna de las dos operaciones puede depender del número de tickets
+// en espera: las tres implementaciones guardan una cola FIFO por prioridad y solo
+// comparan los tres primeros.
+public interface PoliticaReparto {
+
+    void agregar(Ticket ticket);
+
+    // Devuelve el ticket elegido, o null si en este momento no hay ninguno
+    Ticket extraer();
+
+    static PoliticaReparto desdePropiedades() {
+        String valor = System.getProperty("helpdesk.reparto", "estricto").trim().toLowerCase();
+        switch (valor) {
+            case "estricto":
+                return new RepartoEstricto();
+            case "ponderado":
+                return new RepartoPonderado(RepartoPonderado.pesosDesdePropiedades());
+            case "envejecimiento":
+                return new RepartoEnvejecimiento(
+                    Long.getLong("helpdesk.envejecimientoMs", RepartoEnvejecimiento.PASO_MS_POR_DEFECTO),
+                    System::nanoTime);
+            default:
+                System.out.println("Política de reparto desconocida: " + valor + ". Se usa la estricta.");
+                return new RepartoEstricto();
+        }
+    }
+}
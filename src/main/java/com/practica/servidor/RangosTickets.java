@@ -0,0 +1,157 @@
+package com.practica.servidor;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+// Posición de los tickets por (estado, prioridad) para servir una página de la vista
+// sin recorrerla desde el principio. Guarda, por cada bloque de 1024 ids consecutivos,
+// cuántos tickets hay de cada clave: para llegar a la fila N se saltan bloques enteros
+// sumando sus recuentos y solo se recorre por dentro el bloque donde cae la fila,
+// preguntando la clave de cada id al almacén. Con un millón de tickets ocupa 36 KB,
+// así que puede contar también los tickets que ya no están en memoria.
+//
+// No es seguro para varios hilos: se usa siempre con el cerrojo del Servidor tomado.
+class RangosTickets {
+
+    private static final int BITS_BLOQUE = 10;
+    private static final int CLAVES = 9;
+
+    // Máscara con todas las claves (estado * 3 + prioridad)
+    static final int TODAS = (1 << CLAVES) - 1;
+
+    // Clave (estado * 3 + prioridad) de un id cualquiera ya agregado
+    private final IntUnaryOperator claveDe;
+    private int cantidad = 0;
+
+    // [bloque * 9 + clave] y total por clave
+    private int[] recuentos = new int[CLAVES * 16];
+    private final int[] totales = new int[CLAVES];
+
+    RangosTickets(IntUnaryOperator claveDe) {
+        this.claveDe = claveDe;
+    }
+
+    // Los ids llegan consecutivos, como en el almacén de tickets
+    public void agregar(int id, int clave) {
+        if (id - 1 != cantidad) {
+            throw new IllegalStateException("Id fuera de orden: " + id);
+        }
+        int bloque = cantidad >> BITS_BLOQUE;
+        if ((bloque + 1) * CLAVES > recuentos.length) {
+            recuentos = Arrays.copyOf(recuentos, recuentos.length * 2);
+        }
+        cantidad++;
+        recuentos[bloque * CLAVES + clave]++;
+        totales[clave]++;
+    }
+
+    // Claves que cumplen el filtro; -1 en estado o prioridad significa "cualquiera"
+    static int mascara(int estado, int prioridad) {
+        int mascara = 0;
+        for (int e = 0; e < 3; e++) {
+            for (int p = 0; p < 3; p++) {
+                if ((estado < 0 || e == estado) && (prioridad < 0 || p == prioridad)) {
+                    mascara |= 1 << (e * 3 + p);
+                }
+            }
+        }
+        return mascara;
+    }
+
+    // La vista en ese orden como una sucesión de grupos de claves
+    static int[] grupos(OrdenTickets orden, int mascara) {
+        int[] grupos;
+        switch (orden) {
+            case PRIORIDAD:
+                grupos = new int[3];
+                for (int p = 0; p < 3; p++) {
+                    grupos[p] = mascara & mascara(-1, p);
+                }
+                return grupos;
+            case ESTADO:
+                grupos = new int[3];
+                for (int e = 0; e < 3; e++) {
+                    grupos[e] = mascara & mascara(e, -1);
+                }
+                return grupos;
+            default:
+                return new int[] {mascara};
+        }
+    }
+
+    public void mover(int id, int claveAnterior, int claveNueva) {
+        if (claveAnterior != claveNueva) {
+            int base = ((id - 1) >> BITS_BLOQUE) * CLAVES;
+            recuentos[base + claveAnterior]--;
+            recuentos[base + claveNueva]++;
+            totales[claveAnterior]--;
+            totales[claveNueva]++;
+        }
+    }
+
+    public int contar(int mascara) {
+        int total = 0;
+        for (int clave = 0; clave < CLAVES; clave++) {
+            if ((mascara & (1 << clave)) != 0) {
+                total += totales[clave];
+            }
+        }
+        return total;
+    }
+
+    // Escribe en destino los ids de las filas [desde, desde + destino.length) de la vista
+    // formada por los grupos en ese orden, cada uno con sus tickets en orden de id.
+    // Descendente invierte la vista entera. Devuelve cuántos ids ha escrito.
+    public int buscar(int[] grupos, boolean descendente, int desde, int[] destino) {
+        int escritos = 0;
+        int saltar = desde;
+        for (int i = 0; i < grupos.length && escritos < destino.length; i++) {
+            int mascara = grupos[descendente ? grupos.length - 1 - i : i];
+            int enGrupo = contar(mascara);
+            if (saltar >= enGrupo) {
+                saltar -= enGrupo;
+                continue;
+            }
+            escritos = recorrer(mascara, descendente, saltar, destino, escritos);
+            saltar = 0;
+        }
+        return escritos;
+    }
+
+    private int recorrer(int mascara, boolean descendente, int saltar, int[] destino, int escritos) {
+        int bloques = (cantidad + (1 << BITS_BLOQUE) - 1) >> BITS_BLOQUE;
+        for (int j = 0; j < bloques && escritos < destino.length; j++) {
+            int bloque = descendente ? bloques - 1 - j : j;
+            int enBloque = contarBloque(bloque, mascara);
+            if (saltar >= enBloque) {
+                saltar -= enBloque;
+                continue;
+            }
+            int primera = bloque << BITS_BLOQUE;
+            int ultima = Math.min(primera + (1 << BITS_BLOQUE), cantidad) - 1;
+            for (int k = 0; k <= ultima - primera && escritos < destino.length; k++) {
+                int posicion = descendente ? ultima - k : primera + k;
+                if ((mascara & (1 << claveDe.applyAsInt(posicion + 1))) == 0) {
+                    continue;
+                }
+                if (saltar > 0) {
+                    saltar--;
+                } else {
+                    destino[escritos++] = posicion + 1;
+                }
+            }
+        }
+        return escritos;
+    }
+
+    private int contarBloque(int bloque, int mascara) {
+        int base = bloque * CLAVES;
+        int total = 0;
+        for (int clave = 0; clave < CLAVES; clave++) {
+            if ((mascara & (1 << clave)) != 0) {
+                total += recuentos[base + clave];
+            }
+        }
+        return total;
+    }
+}
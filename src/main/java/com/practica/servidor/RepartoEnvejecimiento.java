@@ -0,0 +1,70 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+// Envejecimiento por tiempo: la prioridad de un ticket sube mientras espera.
+// Cada ticket compite con su instante de llegada más una penalización de "paso" por
+// cada nivel por debajo de ALTA (0 para ALTA, 1 paso para MEDIA, 2 para BAJA), y se
+// atiende el de valor menor. Con un paso de 30 s, un BAJA que lleva un minuto
+// esperando pasa por delante de un ALTA recién llegado, así que nadie espera más de
+// 2 pasos por detrás del trabajo más urgente.
+//
+// Dentro de una prioridad la penalización es la misma, así que basta comparar el
+// primero de cada cola. Sin cerrojos: si otro técnico se lleva a la vez el ticket
+// elegido, este toma el siguiente de esa misma cola.
+public class RepartoEnvejecimiento implements PoliticaReparto {
+
+    public static final long PASO_MS_POR_DEFECTO = 30_000;
+
+    private final List<Queue<Entrada>> colas =
+        List.of(new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>());
+    private final long pasoNanos;
+
+    // Fuente de tiempo en nanosegundos; las simulaciones pasan un reloj propio
+    private final LongSupplier reloj;
+
+    public RepartoEnvejecimiento(long pasoMs, LongSupplier reloj) {
+        if (pasoMs < 0) {
+            throw new IllegalArgumentException("El paso de envejecimiento no puede ser negativo: " + pasoMs);
+        }
+        this.pasoNanos = pasoMs * 1_000_000;
+        this.reloj = reloj;
+    }
+
+    private record Entrada(Ticket ticket, long turno) {
+    }
+
+    @Override
+    public void agregar(Ticket ticket) {
+        int indice = ColaPendientes.indicePrioridad(ticket.getPrioridad());
+        colas.get(indice).add(new Entrada(ticket, reloj.getAsLong() + indice * pasoNanos));
+    }
+
+    @Override
+    public Ticket extraer() {
+        while (true) {
+            Queue<Entrada> elegida = null;
+            long mejorTurno = 0;
+            for (Queue<Entrada> cola : colas) {
+                Entrada primera = cola.peek();
+                // Se compara por diferencia para no depender del signo de nanoTime
+                if (primera != null && (elegida == null || primera.turno() - mejorTurno < 0)) {
+                    elegida = cola;
+                    mejorTurno = primera.turno();
+                }
+            }
+            if (elegida == null) {
+                return null;
+            }
+            Entrada entrada = elegida.poll();
+            if (entrada != null) {
+                return entrada.ticket();
+            }
+        }
+    }
+}
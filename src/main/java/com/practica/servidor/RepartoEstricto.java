@@ -0,0 +1,32 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Prioridad estricta: siempre el ticket más antiguo de la prioridad más alta.
+// Es el reparto de siempre y el más rápido, pero con carga sostenida de ALTA
+// los tickets BAJA pueden no llegar a atenderse nunca.
+public class RepartoEstricto implements PoliticaReparto {
+
+    private final List<Queue<Ticket>> colas =
+        List.of(new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>());
+
+    @Override
+    public void agregar(Ticket ticket) {
+        colas.get(ColaPendientes.indicePrioridad(ticket.getPrioridad())).add(ticket);
+    }
+
+    @Override
+    public Ticket extraer() {
+        for (Queue<Ticket> cola : colas) {
+            Ticket ticket = cola.poll();
+            if (ticket != null) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+// Reparto ponderado (stride scheduling, la versión discreta del weighted fair queuing).
+// Cada prioridad tiene un peso y lleva un "pase" que avanza 1/peso cada vez que se
+// atiende uno de sus tickets; se atiende siempre la prioridad con tickets y menor pase.
+// Con pesos 6:3:1 y las tres colas llenas, de cada 10 tickets 6 son ALTA, 3 MEDIA y
+// 1 BAJA, así que BAJA avanza aunque nunca deje de llegar trabajo ALTA.
+//
+// Una prioridad que se queda sin tickets no acumula crédito: al volver se pone al día
+// con el pase del último ticket atendido para no acaparar a los técnicos.
+// Elegir es comparar tres pases; agregar y extraer comparten un único monitor breve.
+public class RepartoPonderado implements PoliticaReparto {
+
+    // Pesos por defecto de ALTA, MEDIA y BAJA; se cambian con -Dhelpdesk.pesos=6:3:1
+    public static final int[] PESOS_POR_DEFECTO = {6, 3, 1};
+
+    // Múltiplo común de cualquier peso razonable, para que los pasos sean enteros
+    private static final long ESCALA = 720720;
+
+    // Todo acceso va bajo el monitor, así que bastan colas no concurrentes
+    private final List<Queue<Ticket>> colas = List.of(new ArrayDeque<>(), new ArrayDeque<>(), new ArrayDeque<>());
+    private final long[] pasos = new long[3];
+    private final long[] pases = new long[3];
+    private long paseActual = 0;
+
+    public RepartoPonderado(int[] pesos) {
+        if (pesos.length != 3) {
+            throw new IllegalArgumentException("Hacen falta tres pesos (ALTA, MEDIA, BAJA)");
+        }
+        for (int i = 0; i < 3; i++) {
+            if (pesos[i] <= 0) {
+                throw new IllegalArgumentException("Los pesos deben ser positivos: " + Arrays.toString(pesos));
+            }
+            pasos[i] = ESCALA / pesos[i];
+        }
+    }
+
+    static int[] pesosDesdePropiedades() {
+        String valor = System.getProperty("helpdesk.pesos");
+        if (valor == null) {
+            return PESOS_POR_DEFECTO;
+        }
+        try {
+            String[] partes = valor.split(":");
+            int[] pesos = new int[3];
+            for (int i = 0; i < 3; i++) {
+                pesos[i] = Integer.parseInt(partes[i].trim());
+                if (pesos[i] <= 0) {
+                    throw new NumberFormatException();
+                }
+            }
+            return pesos;
+        } catch (RuntimeException e) {
+            System.out.println("Pesos de reparto no válidos: " + valor + ". Se usan 6:3:1.");
+            return PESOS_POR_DEFECTO;
+        }
+    }
+
+    @Override
+    public synchronized void agregar(Ticket ticket) {
+        int indice = ColaPendientes.indicePrioridad(ticket.getPrioridad());
+        if (colas.get(indice).isEmpty() && pases[indice] < paseActual) {
+            pases[indice] = paseActual;
+        }
+        colas.get(indice).add(ticket);
+    }
+
+    @Override
+    public synchronized Ticket extraer() {
+        int elegida = -1;
+        for (int i = 0; i < 3; i++) {
+            // A igual pase gana la prioridad más alta
+            if (!colas.get(i).isEmpty() && (elegida < 0 || pases[i] < pases[elegida])) {
+                elegida = i;
+            }
+        }
+        if (elegida < 0) {
+            return null;
+        }
+        paseActual = pases[elegida];
+        pases[elegida] += pasos[elegida];
+        return colas.get(elegida).poll();
+    }
+}
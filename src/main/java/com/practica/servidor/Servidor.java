@@ -1,112 +1,789 @@
 package com.practica.servidor;
 
 import com.practica.tecnico.Tecnico;
+import com.practica.util.ClasificadorPrioridad;
+import com.practica.util.Mensaje;
+import com.practica.util.Protocolo;
 import com.practica.util.Ticket;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Servidor {
 
+    public static final int PUERTO = 1900;
+
+    // Avisos de tickets distintos que puede acumular un cliente que no lee antes de
+    // desconectarlo; se cambia con -Dhelpdesk.colaSalida=N
+    static final int LIMITE_COLA_SALIDA = Integer.getInteger("helpdesk.colaSalida", 1024);
+
+    // Tiempo que tiene una conexión nueva para enviar la cabecera de su protocolo antes
+    // de cerrarla; se cambia con -Dhelpdesk.esperaCabeceraMs=N
+    static final int ESPERA_CABECERA_MS = Integer.getInteger("helpdesk.esperaCabeceraMs", 10_000);
+
+    // Con -Dhelpdesk.clasificarEnServidor=true la prioridad de los tickets que llegan por
+    // la red la decide el diccionario del servidor, no la que manda el cliente
+    private static final boolean CLASIFICAR_EN_SERVIDOR = Boolean.getBoolean("helpdesk.clasificarEnServidor");
+
+    // Tickets que se revisan por cada paso por el cerrojo al archivar
+    private static final int TRAMO_ARCHIVO = 16_384;
+
+    private final ModoServidor modo;
     private ServerSocket serverSocket;
     private final List<Tecnico> listaTecnicos = new ArrayList<>();
-    private final List<Ticket> listaTickets = new ArrayList<>();
-    private final Map<Integer, ObjectOutputStream> listaClientes = new HashMap<>();
+
+    // Solo se sustituye si falla la reconstrucción desde el diario, antes de publicar el Servidor
+    private AlmacenTickets almacen = new AlmacenTickets();
+    private final ColaPendientes colaPendientes;
+    private final ContadoresTickets contadores = new ContadoresTickets();
+    private final RangosTickets rangos = new RangosTickets(id -> clave(almacen.getEstado(id), almacen.getPrioridad(id)));
+    private final MetricasServidor metricas = new MetricasServidor(contadores::instantanea);
+    private final ControlAdmision admision = new ControlAdmision();
+
+    // Hilos que escriben las colas de salida en los modos bloqueantes. Cada conexión
+    // con avisos ocupa uno mientras escribe, así que un cliente lento solo retrasa lo suyo.
+    // Son virtuales en los dos modos: se crea uno por cada tanda que se vacía, y con
+    // hilos del sistema eso sería un hilo nuevo del SO por ráfaga y conexión.
+    private final ExecutorService hilosSalida;
+    private final Map<Integer, CanalCliente> listaClientes = new ConcurrentHashMap<>();
     private int cantidadTickets = 0;
 
+    // null si el servidor trabaja solo en memoria
+    private final DiarioTickets diario;
+
+    // Los tickets resueltos hace más de -Dhelpdesk.archivarTrasSegundos (una hora por
+    // defecto) pasan al archivo de disco, junto al diario; un valor negativo lo desactiva.
+    // Se lee al construir el Servidor.
+    private final long archivarTrasMs = Long.getLong("helpdesk.archivarTrasSegundos", 3600) * 1000;
+
+    // null si no hay diario, o si no se archiva y nunca se archivó nada. Solo se asigna
+    // al abrir el diario.
+    private ArchivoTickets archivo;
+
+    // Archivar e instantánea no se solapan: la instantánea cuenta al empezar cuántos
+    // tickets siguen en memoria y no puede cambiar mientras los escribe
+    private final ReentrantLock cerrojoArchivo = new ReentrantLock();
+
+    // Protege los cambios de estado de los tickets, el almacén y el orden del diario.
+    // Nadie espera con él tomado: los técnicos esperan en colaPendientes, que no lo usa.
+    // Es un cerrojo explícito porque un hilo virtual bloqueado en él no retiene su portador.
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    private final List<Consumer<EventoTicket>> suscriptores = new CopyOnWriteArrayList<>();
+
     // Contador que se incrementa cada vez que el estado del servidor cambia.
     // La UI lo consulta periódicamente para saber si necesita refrescarse,
     // sin necesidad de callbacks ni modificaciones complejas.
     private volatile int contadorCambios = 0;
 
     public Servidor() {
+        this(ModoServidor.desdePropiedades());
+    }
+
+    public Servidor(ModoServidor modo) {
+        this(modo, directorioDatosPorDefecto());
+    }
+
+    // Con directorioDatos null no hay diario: el estado vive solo en memoria
+    public Servidor(ModoServidor modo, Path directorioDatos) {
+        this(modo, directorioDatos, PoliticaReparto.desdePropiedades());
+    }
+
+    public Servidor(ModoServidor modo, Path directorioDatos, PoliticaReparto politica) {
+        this.modo = modo;
+        this.colaPendientes = new ColaPendientes(politica);
+        this.hilosSalida = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("salida-", 1).factory());
+        this.diario = directorioDatos == null ? null : abrirDiario(directorioDatos);
+    }
+
+    // -Dhelpdesk.datos=ruta cambia el directorio del diario; vacío lo desactiva
+    private static Path directorioDatosPorDefecto() {
+        String ruta = System.getProperty("helpdesk.datos", "datos");
+        return ruta.isEmpty() ? null : Path.of(ruta);
+    }
+
+    // Si el diario no se puede reconstruir, se avisa y el servidor arranca vacío y solo
+    // en memoria, sin tocar los ficheros: los datos siguen ahí para revisarlos
+    private DiarioTickets abrirDiario(Path directorio) {
+        DiarioTickets diarioAbierto = null;
+        try {
+            diarioAbierto = new DiarioTickets(directorio);
+            // El archivo va antes de reproducir: lo que ya está en él no vuelve a memoria.
+            // Si ya se archivó alguna vez, se abre aunque ahora no se archive, porque la
+            // instantánea no lleva esos tickets.
+            Path directorioArchivo = directorio.resolve("archivo");
+            boolean archivar = archivarTrasMs >= 0;
+            if (archivar || Files.exists(directorioArchivo.resolve("indice.dat"))) {
+                archivo = new ArchivoTickets(directorioArchivo,
+                    Integer.getInteger("helpdesk.archivoCache", 4096), !archivar);
+                almacen.setArchivo(archivo);
+            }
+            Reconstruccion reconstruccion = new Reconstruccion();
+            diarioAbierto.reproducir(reconstruccion);
+            reconstruccion.terminar();
+            return diarioAbierto;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("No se pudo recuperar el diario de " + directorio.toAbsolutePath()
+                + ", se trabaja solo en memoria y sin modificarlo: " + e);
+            cerrarSilenciosamente(diarioAbierto);
+            cerrarSilenciosamente(archivo);
+            archivo = null;
+            // Hasta terminar() la reconstrucción solo toca el almacén
+            almacen = new AlmacenTickets();
+            cantidadTickets = 0;
+            return null;
+        }
+    }
+
+    // Cierra el diario, tras volcar lo pendiente, y el archivo. Después el Servidor ya
+    // no se puede usar.
+    void cerrar() throws IOException {
+        if (diario != null) {
+            diario.close();
+        }
+        if (archivo != null) {
+            archivo.close();
+        }
+    }
+
+    // Rehace el almacén y la cola de pendientes a partir del diario, antes de aceptar conexiones.
+    // Los ids son consecutivos, así que cada ticket ocupa en el almacén la posición de su id.
+    // Los que ya están en el archivo no salen en la instantánea: sus huecos se rellenan
+    // como archivados, y los registros del diario que aún los nombran se saltan.
+    private class Reconstruccion implements DiarioTickets.Receptor {
+
+        @Override
+        public void ticket(int id, String nombreCliente, String descripcion, String prioridad,
+                           String estado, String tecnico) {
+            rellenarHasta(id - 1);
+            if (archivado(id)) {
+                almacen.agregarArchivado(id);
+            } else {
+                almacen.agregar(id, nombreCliente, descripcion, prioridad, estado, tecnico, 0);
+            }
+            cantidadTickets = id;
+        }
+
+        @Override
+        public void registro(int id, String nombreCliente, String descripcion, String prioridad) {
+            // La instantánea puede contener ya tickets cuyo registro sigue en el diario
+            if (id <= cantidadTickets) {
+                return;
+            }
+            ticket(id, nombreCliente, descripcion, prioridad, "PENDIENTE", "");
+        }
+
+        @Override
+        public void asignacion(int id, String tecnico) {
+            if (almacen.existe(id) && !almacen.estaArchivado(id)) {
+                almacen.cambiarEstado(id, AlmacenTickets.EN_PROCESO);
+                almacen.asignar(id, tecnico);
+            }
+        }
+
+        @Override
+        public void resolucion(int id) {
+            if (almacen.existe(id) && !almacen.estaArchivado(id)) {
+                almacen.cambiarEstado(id, AlmacenTickets.RESUELTO);
+            }
+        }
+
+        private boolean archivado(int id) {
+            return archivo != null && archivo.contiene(id);
+        }
+
+        private void rellenarHasta(int id) {
+            for (int hueco = almacen.getCantidad() + 1; hueco <= id && archivado(hueco); hueco++) {
+                almacen.agregarArchivado(hueco);
+            }
+        }
+
+        // Los técnicos no sobreviven a un reinicio: lo que estaba EN_PROCESO vuelve a la cola
+        void terminar() {
+            if (archivo != null) {
+                rellenarHasta(archivo.getMaximoId());
+            }
+            for (int id = 1; id <= almacen.getCantidad(); id++) {
+                if (!almacen.estaArchivado(id) && almacen.getEstado(id) != AlmacenTickets.RESUELTO) {
+                    almacen.cambiarEstado(id, AlmacenTickets.PENDIENTE);
+                    almacen.asignar(id, "");
+                    colaPendientes.agregar(almacen.ticket(id));
+                }
+                contadores.agregar(almacen.getEstado(id), almacen.getPrioridad(id));
+                rangos.agregar(id, clave(almacen.getEstado(id), almacen.getPrioridad(id)));
+            }
+            cantidadTickets = almacen.getCantidad();
+            almacen.compactar();
+        }
+    }
+
+    // Cada cierto tiempo (-Dhelpdesk.instantaneaSegundos, 300 por defecto) se guarda una
+    // instantánea si hubo cambios, para que el diario no crezca sin límite y el arranque
+    // solo tenga que reproducir lo ocurrido desde entonces
+    private void iniciarInstantaneas() {
+        long intervalo = Long.getLong("helpdesk.instantaneaSegundos", 300) * 1000;
+        Thread hilo = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalo);
+                    if (diario.hayCambiosDesdeUltimaInstantanea()) {
+                        tomarInstantanea();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    System.out.println("No se pudo guardar la instantánea: " + e.getMessage());
+                }
+            }
+        }, "diario-instantaneas");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    // Solo el cambio de segmento ocurre con el cerrojo tomado. Los tickets se copian en
+    // tramos cortos y se escriben sin bloquear a nadie: lo que cambie mientras tanto ya
+    // está en el segmento nuevo y se vuelve a aplicar al reproducir.
+    public void tomarInstantanea() throws IOException {
+        if (diario == null) {
+            return;
+        }
+        cerrojoArchivo.lock();
+        try {
+            int segmento;
+            int ultimoId;
+            int enMemoria;
+            cerrojo.lock();
+            try {
+                segmento = diario.rotar();
+                ultimoId = almacen.getCantidad();
+                enMemoria = ultimoId - almacen.getArchivados();
+            } finally {
+                cerrojo.unlock();
+            }
+            // Lo archivado ya es durable en el archivo: la instantánea solo lleva el resto
+            diario.escribirInstantanea(segmento, enMemoria, new CopiaPorTramos(ultimoId));
+        } finally {
+            cerrojoArchivo.unlock();
+        }
+    }
+
+    // Recorre los tickets sin archivar con id 1..ultimoId construyéndolos de 4096 en
+    // 4096, cada tramo con un paso corto por el cerrojo
+    private class CopiaPorTramos implements Iterator<Ticket> {
+
+        private final int ultimoId;
+        private final List<Ticket> tramo = new ArrayList<>(4096);
+        private int siguienteId = 1;
+        private int posicionTramo = 0;
+
+        CopiaPorTramos(int ultimoId) {
+            this.ultimoId = ultimoId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (posicionTramo == tramo.size() && siguienteId <= ultimoId) {
+                llenarTramo();
+            }
+            return posicionTramo < tramo.size();
+        }
+
+        @Override
+        public Ticket next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return tramo.get(posicionTramo++);
+        }
+
+        private void llenarTramo() {
+            tramo.clear();
+            posicionTramo = 0;
+            int hasta = Math.min(siguienteId + 4096, ultimoId + 1);
+            cerrojo.lock();
+            try {
+                for (; siguienteId < hasta; siguienteId++) {
+                    if (!almacen.estaArchivado(siguienteId)) {
+                        tramo.add(almacen.ticket(siguienteId));
+                    }
+                }
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+
+    // Cada cierto tiempo (la décima parte de la edad de archivo, entre 1 s y 1 min) se
+    // pasan al archivo los tickets resueltos que ya la superan
+    private void iniciarArchivo() {
+        long intervalo = Math.max(1000, Math.min(60_000, archivarTrasMs / 10));
+        Thread hilo = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalo);
+                    archivarResueltos();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    System.out.println("No se pudieron archivar los tickets resueltos: " + e.getMessage());
+                }
+            }
+        }, "archivo-tickets");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    // Copia al archivo los tickets resueltos hace más de la edad configurada y solo
+    // después, ya durables allí, los suelta de memoria. Los registros se escriben sin
+    // el cerrojo del Servidor, así que al volver a tomarlo se comprueba que cada ticket
+    // sigue igual: uno reasignado desde la consola mientras tanto no se indexa y se
+    // queda en memoria.
+    //
+    // Se avanza por tramos de TRAMO_ARCHIVO tickets, cada uno con dos pasos cortos por
+    // el cerrojo, desde donde lo dejó la llamada anterior hasta el último ticket.
+    public void archivarResueltos() throws IOException {
+        archivarResueltos(System.currentTimeMillis() - archivarTrasMs);
+    }
+
+    // Archiva los resueltos cuyo último cambio es anterior a "limite", en ms desde 1970
+    void archivarResueltos(long limite) throws IOException {
+        if (archivo == null || archivarTrasMs < 0) {
+            return;
+        }
+        cerrojoArchivo.lock();
+        try {
+            boolean terminado;
+            do {
+                List<Ticket> tickets;
+                cerrojo.lock();
+                try {
+                    tickets = almacen.archivables(limite, TRAMO_ARCHIVO);
+                    terminado = almacen.vueltaArchivablesTerminada();
+                } finally {
+                    cerrojo.unlock();
+                }
+                if (!tickets.isEmpty()) {
+                    archivarTramo(tickets);
+                }
+            } while (!terminado);
+        } finally {
+            // Hasta aquí el índice solo está en memoria; si se pierde en una caída, esos
+            // tickets siguen en el diario, porque la instantánea espera a cerrojoArchivo
+            archivo.forzarIndice();
+            cerrojoArchivo.unlock();
+        }
+    }
+
+    private void archivarTramo(List<Ticket> tickets) throws IOException {
+        long[] posiciones = archivo.escribir(tickets);
+        cerrojo.lock();
+        try {
+            for (int i = 0; i < tickets.size(); i++) {
+                Ticket ticket = tickets.get(i);
+                int id = ticket.getId();
+                // Solo el estado y el técnico cambian: si coinciden, el registro vale
+                if (almacen.getEstado(id) == AlmacenTickets.RESUELTO
+                        && almacen.getTecnico(id).equals(ticket.getTecnicoAsignado())) {
+                    archivo.indexar(ticket, posiciones[i]);
+                    almacen.marcarArchivado(id);
+                }
+            }
+            almacen.compactar();
+        } finally {
+            cerrojo.unlock();
+        }
     }
 
     public void iniciarServidor() {
+        if (diario != null) {
+            iniciarInstantaneas();
+        }
+        if (archivo != null && archivarTrasMs >= 0) {
+            iniciarArchivo();
+        }
+        metricas.publicar();
         try {
-            this.serverSocket = new ServerSocket(1900);
+            if (modo == ModoServidor.NIO) {
+                // Por defecto, dos hilos de E/S; se cambia con -Dhelpdesk.hilosIO=N
+                int hilosIO = Integer.getInteger("helpdesk.hilosIO", 2);
+                new ServidorNio(this, PUERTO, hilosIO).iniciar();
+                return;
+            }
+            this.serverSocket = new ServerSocket(PUERTO);
             while (true) {
                 Socket socket = serverSocket.accept();
-                new Thread(() -> gestionarConexion(socket)).start();
+                crearHilo("conexion", () -> gestionarConexion(socket)).start();
             }
         } catch (IOException e) {
             System.out.println(e.getMessage());
         }
     }
 
+    // Con el protocolo binario la conexión dura lo que este método. Con el de objetos,
+    // hasta que su único ticket termina y el canal la cierra.
     private void gestionarConexion(Socket socket) {
+        if (!admision.abrirConexion()) {
+            rechazarConexion(socket);
+            return;
+        }
+        metricas.conexionAbierta();
+        boolean cerrarAlSalir = true;
         try {
-            ObjectOutputStream salida = new ObjectOutputStream(socket.getOutputStream());
-            ObjectInputStream entrada = new ObjectInputStream(socket.getInputStream());
+            // Hasta tener la cabecera (y, con objetos, la única petición) cada lectura
+            // tiene un plazo: un cliente callado no retiene la plaza ni el hilo
+            socket.setSoTimeout(ESPERA_CABECERA_MS);
+            BufferedInputStream entradaBruta = new BufferedInputStream(socket.getInputStream());
+            if (esBinaria(entradaBruta)) {
+                gestionarConexionBinaria(socket, new DataInputStream(entradaBruta));
+                return;
+            }
+
+            OutputStream salidaBruta = socket.getOutputStream();
+            ObjectOutputStream salida = new ObjectOutputStream(salidaBruta);
+            ObjectInputStream entrada = new ObjectInputStream(entradaBruta);
             Object peticion = entrada.readObject();
+            socket.setSoTimeout(0);
             if (peticion instanceof Ticket) {
-                registrarTicket((Ticket) peticion, salida);
+                cerrarAlSalir = false;
+                ColaSalida cola = crearColaSalida(salidaBruta, () -> cerrarConexion(socket));
+                registrarTicket((Ticket) peticion, new CanalObjetos(cola, salida));
             }
+        } catch (SocketTimeoutException e) {
+            System.out.println("Conexión cerrada: no envió su petición en " + ESPERA_CABECERA_MS + " ms");
         } catch (IOException | ClassNotFoundException e) {
             System.out.println(e.getMessage());
+        } finally {
+            if (cerrarAlSalir) {
+                cerrarConexion(socket);
+            }
         }
     }
 
-    public synchronized void registrarTicket(Ticket ticket, ObjectOutputStream salida) {
-        this.cantidadTickets++;
-        ticket.setId(this.cantidadTickets);
-        listaTickets.add(ticket);
-        if (salida != null) {
-            listaClientes.put(ticket.getId(), salida);
+    // Los dos primeros bytes dicen qué protocolo habla el cliente
+    private static boolean esBinaria(BufferedInputStream entrada) throws IOException {
+        entrada.mark(2);
+        int primero = entrada.read();
+        int segundo = entrada.read();
+        entrada.reset();
+        return segundo != -1 && Protocolo.esCabecera((byte) primero, (byte) segundo);
+    }
+
+    // Demasiadas conexiones abiertas: se contesta "ocupado" y se cierra. Antes de cerrar
+    // se descarta lo que el cliente aún envíe (un cliente de objetos manda su ticket sin
+    // esperar respuesta): cerrar con datos sin leer haría que el sistema enviara un RST
+    // y el cliente podría perder la respuesta.
+    private void rechazarConexion(Socket socket) {
+        metricas.conexionRechazada();
+        try {
+            socket.setSoTimeout(2000);
+            InputStream entrada = new BufferedInputStream(socket.getInputStream());
+            boolean binaria = esBinaria((BufferedInputStream) entrada);
+            admision.escribirRechazoConexion(new BufferedOutputStream(socket.getOutputStream()), binaria);
+            socket.shutdownOutput();
+            byte[] descarte = new byte[4096];
+            while (entrada.read(descarte) != -1) {
+                // Hasta que el cliente cierre o se agote la espera
+            }
+        } catch (IOException e) {
+            // El cliente ya se fue: no hay a quién avisar
+        } finally {
+            cerrarSilenciosamente(socket);
+        }
+    }
+
+    private void cerrarConexion(Socket socket) {
+        cerrarSilenciosamente(socket);
+        admision.conexionCerrada();
+        metricas.conexionCerrada();
+    }
+
+    private static void cerrarSilenciosamente(Closeable recurso) {
+        if (recurso == null) {
+            return;
+        }
+        try {
+            recurso.close();
+        } catch (IOException e) {
+            // Nada que hacer: ya no se usa
+        }
+    }
+
+    private void gestionarConexionBinaria(Socket socket, DataInputStream entrada) throws IOException {
+        Protocolo.leerCabecera(entrada);
+        // Con la cabecera recibida, un cliente binario puede pasar el tiempo que quiera sin enviar
+        socket.setSoTimeout(0);
+        OutputStream salida = new BufferedOutputStream(socket.getOutputStream());
+        salida.write(Protocolo.CABECERA);
+        salida.flush();
+
+        // Una sola conexión por cliente: cada ticket registrado por ella tiene su propio
+        // canal, pero todos comparten la cola de salida. Si la cola se desborda, cerrar el
+        // socket hace que este hilo salga de la lectura.
+        ColaSalida cola = crearColaSalida(salida, () -> cerrarSilenciosamente(socket));
+        try {
+            while (true) {
+                Mensaje mensaje = Protocolo.leerTrama(entrada);
+                if (mensaje.getTipo() == Protocolo.REGISTRAR) {
+                    registrarTicket(mensaje.getTicket(), new CanalBinario(cola, salida, mensaje.getIdPeticion()));
+                } else if (mensaje.getTipo() == Protocolo.REGISTRAR_LOTE) {
+                    registrarTickets(mensaje.getTickets(), CanalBinario.paraLote(cola, salida, mensaje));
+                }
+            }
+        } catch (EOFException e) {
+            // El cliente cerró la conexión
+        } finally {
+            cola.cerrar();
+        }
+    }
+
+    private ColaSalida crearColaSalida(OutputStream salida, Runnable alCerrar) {
+        return new ColaSalida(salida, LIMITE_COLA_SALIDA, metricas,
+            cola -> hilosSalida.execute(cola::vaciar), alCerrar);
+    }
+
+    // El ticket se anota en el diario bajo el cerrojo, pero la espera hasta que es
+    // durable se hace fuera: así una sola escritura a disco confirma a la vez a todos
+    // los que registraron mientras tanto. Solo entonces se confirma al cliente y se
+    // ofrece a los técnicos, ya sin cerrojo.
+    //
+    // Los tickets que llegan por red (canal no null) pasan antes por el control de
+    // admisión; si no caben, se responde "ocupado" y se devuelve false.
+    public boolean registrarTicket(Ticket ticket, CanalCliente canal) {
+        return registrarTicket(ticket, canal, true);
+    }
+
+    // Para los hilos de un Selector, que atienden muchas conexiones y no pueden quedarse
+    // esperando al disco: vuelve en cuanto el ticket está anotado, y la confirmación y la
+    // entrega a los técnicos las hace el escritor del diario cuando es durable
+    boolean registrarTicketSinEsperar(Ticket ticket, CanalCliente canal) {
+        return registrarTicket(ticket, canal, false);
+    }
+
+    private boolean registrarTicket(Ticket ticket, CanalCliente canal, boolean esperar) {
+        if (canal != null && CLASIFICAR_EN_SERVIDOR) {
+            ticket.setPrioridad(ClasificadorPrioridad.actual().clasificar(ticket.getDescripcion()));
+        }
+        boolean admitido;
+        long posicionDiario = 0;
+        cerrojo.lock();
+        try {
+            admitido = canal == null || admision.admitirTicket(contadores, ticket.getPrioridad());
+            if (admitido) {
+                posicionDiario = anotarRegistro(ticket);
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+
+        if (!admitido) {
+            rechazarTicket(canal);
+            return false;
+        }
+
+        if (esperar) {
+            esperarDurable(posicionDiario);
+            ofrecer(ticket, canal);
+        } else {
+            cuandoDurable(posicionDiario, () -> ofrecer(ticket, canal));
+        }
+        return true;
+    }
+
+    // Registro de un lote llegado por red, con un canal por ticket. Un solo paso por el
+    // cerrojo, un único rango de ids consecutivos para todos los admitidos y una sola
+    // espera del diario. Cada ticket recibe su confirmación o su "ocupado", y salen
+    // todas juntas. Devuelve cuántos se admitieron.
+    public int registrarTickets(List<Ticket> tickets, List<? extends CanalCliente> canales) {
+        return registrarTickets(tickets, canales, true);
+    }
+
+    // Como registrarTicketSinEsperar(), para un lote
+    int registrarTicketsSinEsperar(List<Ticket> tickets, List<? extends CanalCliente> canales) {
+        return registrarTickets(tickets, canales, false);
+    }
+
+    private int registrarTickets(List<Ticket> tickets, List<? extends CanalCliente> canales, boolean esperar) {
+        if (CLASIFICAR_EN_SERVIDOR) {
+            ClasificadorPrioridad clasificador = ClasificadorPrioridad.actual();
+            for (Ticket ticket : tickets) {
+                ticket.setPrioridad(clasificador.clasificar(ticket.getDescripcion()));
+            }
+        }
+        boolean[] admitidos = new boolean[tickets.size()];
+        int cantidad;
+        long posicionDiario = 0;
+        cerrojo.lock();
+        try {
+            cantidad = admision.admitirLote(contadores, tickets, admitidos);
+            int siguienteId = cantidadTickets + 1;
+            cantidadTickets += cantidad;
+            for (int i = 0; i < tickets.size(); i++) {
+                if (admitidos[i]) {
+                    tickets.get(i).setId(siguienteId++);
+                    posicionDiario = anotarNuevo(tickets.get(i));
+                }
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+
+        Runnable responder = () -> ColaSalida.enLote(() -> {
+            for (int i = 0; i < tickets.size(); i++) {
+                if (admitidos[i]) {
+                    ofrecer(tickets.get(i), canales.get(i));
+                } else {
+                    rechazarTicket(canales.get(i));
+                }
+            }
+        });
+        if (esperar) {
+            esperarDurable(posicionDiario);
+            responder.run();
+        } else {
+            cuandoDurable(posicionDiario, responder);
+        }
+        return cantidad;
+    }
+
+    // Ya durable: la confirmación sale antes de que un técnico pueda tomar el ticket,
+    // para que el cliente la reciba antes que cualquier actualización
+    private void ofrecer(Ticket ticket, CanalCliente canal) {
+        if (canal != null) {
+            listaClientes.put(ticket.getId(), canal);
             try {
-                salida.writeObject("Ticket registrado.");
-                salida.flush();
+                canal.enviarConfirmacion(ticket);
             } catch (IOException e) {
                 listaClientes.remove(ticket.getId());
+                canal.terminar();
             }
         }
+        // Un ticket nuevo solo lo puede tomar un técnico: se despierta a uno solo
+        colaPendientes.agregar(ticket);
         contadorCambios++;
-        notifyAll();
+        publicar(EventoTicket.Tipo.CREADO, ticket);
+    }
+
+    // Con el cerrojo tomado: da id al ticket y lo anota. Devuelve la posición en el diario.
+    private long anotarRegistro(Ticket ticket) {
+        this.cantidadTickets++;
+        ticket.setId(this.cantidadTickets);
+        return anotarNuevo(ticket);
+    }
+
+    // Con el cerrojo tomado, para un ticket que ya tiene su id. El almacén se queda con
+    // sus datos, no con el objeto: ese sigue hasta la cola de pendientes y el técnico.
+    private long anotarNuevo(Ticket ticket) {
+        int id = ticket.getId();
+        almacen.agregar(id, ticket.getNombreCliente(), ticket.getDescripcion(), ticket.getPrioridad(),
+            ticket.getEstado(), ticket.getTecnicoAsignado(), System.nanoTime());
+        contadores.agregar(almacen.getEstado(id), almacen.getPrioridad(id));
+        rangos.agregar(id, clave(almacen.getEstado(id), almacen.getPrioridad(id)));
+        metricas.ticketRegistrado();
+        return diario == null ? 0 : diario.anotarRegistro(ticket);
     }
 
-    public synchronized void registrarTicketDirecto(Ticket ticket) {
+    private void rechazarTicket(CanalCliente canal) {
+        metricas.ticketRechazado();
+        try {
+            canal.enviarOcupado(admision.getReintentarMs());
+        } catch (IOException e) {
+            canal.terminar();
+        }
+    }
+
+    public void registrarTicketDirecto(Ticket ticket) {
         registrarTicket(ticket, null);
     }
 
-    public synchronized Ticket tomarTicket(String nombreTecnico) throws InterruptedException {
-        String[] prioridades = {"ALTA", "MEDIA", "BAJA"};
+    // La espera y la búsqueda en la cola se hacen sin cerrojo; solo el cambio de
+    // estado lo toma, y lo mantiene lo justo para anotarlo en el diario
+    public Ticket tomarTicket(String nombreTecnico) throws InterruptedException {
         while (true) {
-            Ticket ticket = null;
-            for (int i = 0; i < prioridades.length && ticket == null; i++) {
-                ticket = buscarTicket(prioridades[i]);
-            }
-            if (ticket != null) {
-                ticket.setEstado("EN_PROCESO");
-                ticket.setTecnicoAsignado(nombreTecnico);
+            Ticket ticket = colaPendientes.extraer();
+            long posicionDiario;
+            cerrojo.lock();
+            try {
+                // Pudo asignarse o resolverse desde la consola mientras esperaba en la cola
+                if (almacen.getEstado(ticket.getId()) != AlmacenTickets.PENDIENTE) {
+                    continue;
+                }
+                posicionDiario = asignar(ticket, nombreTecnico);
                 contadorCambios++;
-                return ticket;
+            } finally {
+                cerrojo.unlock();
             }
-            wait();
+            esperarDurable(posicionDiario);
+            publicar(EventoTicket.Tipo.ASIGNADO, ticket);
+            return ticket;
         }
     }
 
-    private Ticket buscarTicket(String prioridad) {
-        for (Ticket ticket : listaTickets) {
-            if (ticket.getEstado().equals("PENDIENTE") && ticket.getPrioridad().equalsIgnoreCase(prioridad)) {
-                return ticket;
+    // Toma hasta "maximo" tickets de una vez. Espera solo por el primero y se lleva los
+    // que ya estén pendientes, con un único paso por el cerrojo y una única espera del
+    // diario para todo el lote. Nunca devuelve una lista vacía.
+    public List<Ticket> tomarTickets(String nombreTecnico, int maximo) throws InterruptedException {
+        List<Ticket> extraidos = new ArrayList<>(maximo);
+        List<Ticket> lote = new ArrayList<>(maximo);
+        while (lote.isEmpty()) {
+            extraidos.clear();
+            colaPendientes.extraer(maximo, extraidos);
+            long posicionDiario = 0;
+            cerrojo.lock();
+            try {
+                for (Ticket ticket : extraidos) {
+                    // Pudo asignarse o resolverse desde la consola mientras esperaba en la cola
+                    if (almacen.getEstado(ticket.getId()) != AlmacenTickets.PENDIENTE) {
+                        continue;
+                    }
+                    posicionDiario = Math.max(posicionDiario, asignar(ticket, nombreTecnico));
+                    lote.add(ticket);
+                }
+                contadorCambios++;
+            } finally {
+                cerrojo.unlock();
             }
+            esperarDurable(posicionDiario);
         }
-        return null;
+        for (Ticket ticket : lote) {
+            publicar(EventoTicket.Tipo.ASIGNADO, ticket);
+        }
+        return lote;
     }
 
+    // Los avisos de todo el lote se encolan antes de despertar a ningún hilo de salida,
+    // así que cada conexión recibe los suyos juntos
+    public void notificarClientes(List<Ticket> tickets) {
+        ColaSalida.enLote(() -> {
+            for (Ticket ticket : tickets) {
+                notificarCliente(ticket);
+            }
+        });
+    }
+
+    // Solo deja el aviso en la cola de salida de la conexión: no espera a la red
     public void notificarCliente(Ticket ticket) {
-        ObjectOutputStream salida = listaClientes.get(ticket.getId());
-        if (salida != null) {
+        CanalCliente canal = listaClientes.get(ticket.getId());
+        if (canal != null) {
             try {
-                salida.reset();
-                salida.writeObject(ticket);
-                salida.flush();
+                canal.enviarActualizacion(ticket);
+                metricas.notificacion(true);
                 if (ticket.getEstado().equals("RESUELTO")) {
                     listaClientes.remove(ticket.getId());
+                    canal.terminar();
                 }
             } catch (IOException e) {
+                metricas.notificacion(false);
                 listaClientes.remove(ticket.getId());
+                canal.terminar();
             }
         }
         contadorCambios++;
@@ -117,22 +794,157 @@ public class Servidor {
             String nombreTecnico = "Tecnico-" + (this.listaTecnicos.size() + 1);
             Tecnico tecnico = new Tecnico(nombreTecnico, this);
             this.listaTecnicos.add(tecnico);
-            tecnico.start();
+            crearHilo(nombreTecnico, tecnico).start();
         }
         contadorCambios++;
     }
 
-    public synchronized void asignarTecnicoManual(Ticket ticket, String nombreTecnico) {
-        ticket.setEstado("EN_PROCESO");
-        ticket.setTecnicoAsignado(nombreTecnico);
-        contadorCambios++;
-        notifyAll();
+    // Devuelve false, sin cambiar nada ni publicar ningún evento, si el ticket ya está
+    // archivado: un ticket archivado ya no se reabre
+    public boolean asignarTecnicoManual(Ticket ticket, String nombreTecnico) {
+        long posicionDiario;
+        cerrojo.lock();
+        try {
+            if (almacen.estaArchivado(ticket.getId())) {
+                return false;
+            }
+            posicionDiario = asignar(ticket, nombreTecnico);
+            contadorCambios++;
+        } finally {
+            cerrojo.unlock();
+        }
+        esperarDurable(posicionDiario);
+        publicar(EventoTicket.Tipo.ASIGNADO, ticket);
+        return true;
     }
 
-    public synchronized void resolverTicketManual(Ticket ticket) {
-        ticket.setEstado("RESUELTO");
+    // Cierre de un ticket, tanto por un Tecnico al terminar su trabajo como desde la consola
+    public void resolverTicket(Ticket ticket) {
+        long posicionDiario;
+        cerrojo.lock();
+        try {
+            posicionDiario = resolver(ticket);
+        } finally {
+            cerrojo.unlock();
+        }
+        esperarDurable(posicionDiario);
         notificarCliente(ticket);
-        notifyAll();
+        publicar(EventoTicket.Tipo.RESUELTO, ticket);
+    }
+
+    // Cierre de un lote tomado con tomarTickets(): un paso por el cerrojo, una espera
+    // del diario y los avisos de todo el lote enviados juntos
+    public void resolverTickets(List<Ticket> tickets) {
+        long posicionDiario = 0;
+        cerrojo.lock();
+        try {
+            for (Ticket ticket : tickets) {
+                // Uno ya archivado no anota nada y devuelve 0: se espera por el mayor
+                posicionDiario = Math.max(posicionDiario, resolver(ticket));
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        esperarDurable(posicionDiario);
+        notificarClientes(tickets);
+        for (Ticket ticket : tickets) {
+            publicar(EventoTicket.Tipo.RESUELTO, ticket);
+        }
+    }
+
+    public void resolverTicketManual(Ticket ticket) {
+        resolverTicket(ticket);
+    }
+
+    // Con el cerrojo tomado. El almacén manda: el Ticket que llega de fuera solo aporta
+    // su id y sale con el estado y el técnico que quedan anotados. Devuelven la posición
+    // en el diario. asignar() solo para tickets sin archivar.
+    private long asignar(Ticket ticket, String nombreTecnico) {
+        int id = ticket.getId();
+        cambiarEstado(id, AlmacenTickets.EN_PROCESO);
+        almacen.asignar(id, nombreTecnico);
+        almacen.copiarEstado(ticket);
+        return diario == null ? 0 : diario.anotarAsignacion(id, nombreTecnico);
+    }
+
+    private long resolver(Ticket ticket) {
+        int id = ticket.getId();
+        if (almacen.estaArchivado(id)) {
+            ticket.setEstado("RESUELTO");
+            return 0;
+        }
+        cambiarEstado(id, AlmacenTickets.RESUELTO);
+        almacen.copiarEstado(ticket);
+        return diario == null ? 0 : diario.anotarResolucion(id);
+    }
+
+    // Todo cambio de estado de un ticket ya registrado pasa por aquí, con el cerrojo
+    // tomado, para que los contadores y los rangos no se desvíen nunca del almacén
+    private void cambiarEstado(int id, byte estadoNuevo) {
+        byte estadoAnterior = almacen.getEstado(id);
+        byte prioridad = almacen.getPrioridad(id);
+        contadores.mover(prioridad, estadoAnterior, estadoNuevo);
+        rangos.mover(id, clave(estadoAnterior, prioridad), clave(estadoNuevo, prioridad));
+        almacen.cambiarEstado(id, estadoNuevo);
+        if (estadoNuevo == AlmacenTickets.EN_PROCESO) {
+            metricas.ticketAsignado(almacen.getInstanteRegistro(id));
+        } else if (estadoNuevo == AlmacenTickets.RESUELTO) {
+            metricas.ticketResuelto(almacen.getInstanteRegistro(id));
+        }
+    }
+
+    private static int clave(int estado, int prioridad) {
+        return estado * 3 + prioridad;
+    }
+
+    private void esperarDurable(long posicionDiario) {
+        if (diario != null) {
+            diario.esperarDurable(posicionDiario);
+        }
+    }
+
+    private void cuandoDurable(long posicionDiario, Runnable accion) {
+        if (diario != null) {
+            diario.cuandoDurable(posicionDiario, accion);
+        } else {
+            accion.run();
+        }
+    }
+
+    // En modo VIRTUAL, conexiones y técnicos corren en hilos virtuales;
+    // en el resto de modos, en hilos de plataforma como hasta ahora
+    private Thread crearHilo(String nombre, Runnable tarea) {
+        Thread.Builder constructor = modo == ModoServidor.VIRTUAL ? Thread.ofVirtual() : Thread.ofPlatform();
+        return constructor.name(nombre).unstarted(tarea);
+    }
+
+    // Los suscriptores reciben cada cambio en el hilo que lo hizo (técnico, conexión
+    // o consola), así que deben volver enseguida y pasar el trabajo a su propio hilo
+    public void suscribir(Consumer<EventoTicket> suscriptor) {
+        suscriptores.add(suscriptor);
+    }
+
+    private void publicar(EventoTicket.Tipo tipo, Ticket ticket) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        EventoTicket evento = new EventoTicket(tipo, ticket);
+        for (Consumer<EventoTicket> suscriptor : suscriptores) {
+            suscriptor.accept(evento);
+        }
+    }
+
+    // Recuentos por estado y prioridad sin recorrer el historial
+    public EstadisticasTickets getEstadisticas() {
+        return contadores.instantanea();
+    }
+
+    public MetricasServidor getMetricas() {
+        return metricas;
+    }
+
+    ControlAdmision getAdmision() {
+        return admision;
     }
 
     // Permite a la UI saber si algo cambió desde la última vez que consultó
@@ -140,8 +952,77 @@ public class Servidor {
         return contadorCambios;
     }
 
-    public synchronized List<Ticket> getListaTickets() {
-        return Collections.unmodifiableList(listaTickets);
+    // Copia de todos los tickets en orden de id. Cuesta un objeto por ticket: para
+    // mostrar el historial es mejor consultarPagina
+    public List<Ticket> getListaTickets() {
+        return Collections.unmodifiableList(consultarTickets(null, null));
+    }
+
+    // Tickets con ese estado y esa prioridad (null = cualquiera), en orden de id.
+    // Los recuentos por bloque permiten saltar los tramos del historial sin ninguno.
+    public List<Ticket> consultarTickets(String estado, String prioridad) {
+        int mascara = mascara(estado, prioridad);
+        int[] ids;
+        Ticket[] tickets;
+        cerrojo.lock();
+        try {
+            ids = new int[rangos.contar(mascara)];
+            rangos.buscar(new int[] {mascara}, false, 0, ids);
+            tickets = enMemoria(ids, ids.length);
+        } finally {
+            cerrojo.unlock();
+        }
+        return leerArchivados(ids, tickets);
+    }
+
+    // Con el cerrojo tomado: copia de cada ticket que sigue en memoria, null en los archivados
+    private Ticket[] enMemoria(int[] ids, int cantidad) {
+        Ticket[] tickets = new Ticket[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            if (!almacen.estaArchivado(ids[i])) {
+                tickets[i] = almacen.ticket(ids[i]);
+            }
+        }
+        return tickets;
+    }
+
+    // Ya sin el cerrojo: los archivados no cambian, así que se leen del archivo
+    // (o de su caché) sin detener a nadie
+    private List<Ticket> leerArchivados(int[] ids, Ticket[] tickets) {
+        for (int i = 0; i < tickets.length; i++) {
+            if (tickets[i] == null) {
+                tickets[i] = archivo.leer(ids[i]);
+            }
+        }
+        return Arrays.asList(tickets);
+    }
+
+    private static int mascara(String estado, String prioridad) {
+        return RangosTickets.mascara(
+            estado == null ? -1 : Protocolo.codigoEstado(estado),
+            prioridad == null ? -1 : ColaPendientes.indicePrioridad(prioridad));
+    }
+
+    // Filas [desde, desde + cantidad) de la vista con ese estado y esa prioridad (null =
+    // cualquiera) en el orden pedido. Cuesta lo mismo en la primera página que en la
+    // última, así que la consola pide solo lo que se ve aunque haya millones de tickets.
+    public PaginaTickets consultarPagina(String estado, String prioridad, OrdenTickets orden,
+                                         boolean descendente, int desde, int cantidad) {
+        int mascara = mascara(estado, prioridad);
+        int[] grupos = RangosTickets.grupos(orden, mascara);
+        int[] ids = new int[Math.max(cantidad, 0)];
+
+        int total;
+        Ticket[] tickets;
+        cerrojo.lock();
+        try {
+            total = rangos.contar(mascara);
+            int encontrados = desde < total ? rangos.buscar(grupos, descendente, desde, ids) : 0;
+            tickets = enMemoria(ids, encontrados);
+        } finally {
+            cerrojo.unlock();
+        }
+        return new PaginaTickets(total, desde, leerArchivados(ids, tickets));
     }
 
     public List<Tecnico> getListaTecnicos() {
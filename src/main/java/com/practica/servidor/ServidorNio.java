@@ -0,0 +1,549 @@
+package com.practica.servidor;
+
+import com.practica.util.Mensaje;
+import com.practica.util.Protocolo;
+import com.practica.util.Ticket;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Modo de red no bloqueante del servidor HelpDesk.
+//
+// El hilo que llama a iniciar() solo acepta conexiones y las reparte por turnos
+// entre un número fijo de hilos de E/S. Cada hilo de E/S tiene su propio Selector
+// y se encarga de leer el ticket de cada conexión y de enviarle sus actualizaciones.
+//
+// Acepta los mismos protocolos que el modo bloqueante (serialización de Java y binario):
+// cada conexión expone al Servidor un CanalCliente que deja sus avisos en la cola de
+// salida de la conexión. El hilo de E/S solo saca el siguiente tramo de esa cola
+// cuando el socket ha admitido todo lo anterior, así que los bytes en espera de un
+// cliente lento no crecen sin límite.
+//
+// Un hilo de E/S nunca espera al diario: registra con registrarTicketSinEsperar() y
+// la confirmación la envía el escritor del diario cuando el ticket ya está en disco.
+//
+// Una conexión que no envía la cabecera de su protocolo en Servidor.ESPERA_CABECERA_MS
+// se cierra, para que no retenga su plaza de ControlAdmision.
+class ServidorNio {
+
+    private final Servidor servidor;
+    private final int puerto;
+    private final BucleSeleccion[] bucles;
+
+    ServidorNio(Servidor servidor, int puerto, int hilosIO) {
+        this.servidor = servidor;
+        this.puerto = puerto;
+        this.bucles = new BucleSeleccion[Math.max(1, hilosIO)];
+    }
+
+    public void iniciar() throws IOException {
+        for (int i = 0; i < bucles.length; i++) {
+            bucles[i] = new BucleSeleccion(servidor);
+            Thread hilo = new Thread(bucles[i], "nio-io-" + (i + 1));
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+
+        try (ServerSocketChannel canalServidor = ServerSocketChannel.open()) {
+            canalServidor.bind(new InetSocketAddress(puerto));
+            int siguiente = 0;
+            while (true) {
+                SocketChannel canal = canalServidor.accept();
+                canal.configureBlocking(false);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                bucles[siguiente].registrar(canal);
+                siguiente = (siguiente + 1) % bucles.length;
+            }
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Hilo de E/S: un Selector para muchas conexiones
+    // ──────────────────────────────────────────────
+    static class BucleSeleccion implements Runnable {
+
+        private final Servidor servidor;
+        private final Selector selector;
+
+        // Otros hilos no pueden tocar el Selector directamente:
+        // dejan aquí su petición y lo despiertan con wakeup()
+        private final Queue<SocketChannel> conexionesNuevas = new ConcurrentLinkedQueue<>();
+        private final Queue<ConexionNio> conexionesConEscritura = new ConcurrentLinkedQueue<>();
+
+        // Conexiones que aún no han dicho su protocolo, en orden de llegada y por tanto
+        // también de plazo. Solo las usa este hilo.
+        private final Queue<ConexionNio> esperandoCabecera = new ArrayDeque<>();
+
+        BucleSeleccion(Servidor servidor) throws IOException {
+            this.servidor = servidor;
+            this.selector = Selector.open();
+        }
+
+        void registrar(SocketChannel canal) {
+            conexionesNuevas.add(canal);
+            selector.wakeup();
+        }
+
+        void solicitarEscritura(ConexionNio conexion) {
+            conexionesConEscritura.add(conexion);
+            selector.wakeup();
+        }
+
+        // Ninguna excepción sale de aquí: si este hilo muriera, todas sus conexiones
+        // se quedarían sin atender
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    long espera = esperaHastaPlazo();
+                    if (espera == 0) {
+                        selector.select();
+                    } else {
+                        selector.select(espera);
+                    }
+                    atenderNuevas();
+                    atenderEscrituras();
+                    atenderSeleccionadas();
+                    cerrarSinCabecera();
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("Error en el bucle de E/S: " + e);
+                }
+            }
+        }
+
+        // Milisegundos hasta el plazo de cabecera más próximo; 0 si no hay ninguno
+        private long esperaHastaPlazo() {
+            ConexionNio primera = esperandoCabecera.peek();
+            if (primera == null) {
+                return 0;
+            }
+            long nanos = primera.plazoCabecera - System.nanoTime();
+            return Math.max(1, (nanos + 999_999) / 1_000_000);
+        }
+
+        private void cerrarSinCabecera() {
+            long ahora = System.nanoTime();
+            ConexionNio conexion;
+            while ((conexion = esperandoCabecera.peek()) != null) {
+                if (!conexion.esperaCabecera()) {
+                    esperandoCabecera.poll();
+                } else if (ahora - conexion.plazoCabecera >= 0) {
+                    esperandoCabecera.poll();
+                    conexion.cerrar();
+                } else {
+                    break;
+                }
+            }
+        }
+
+        private void atenderNuevas() {
+            SocketChannel canal;
+            while ((canal = conexionesNuevas.poll()) != null) {
+                try {
+                    SelectionKey clave = canal.register(selector, SelectionKey.OP_READ);
+                    ConexionNio conexion = new ConexionNio(this, canal, clave);
+                    clave.attach(conexion);
+                    esperandoCabecera.add(conexion);
+                } catch (ClosedChannelException e) {
+                    System.out.println(e.getMessage());
+                    cerrarSilenciosamente(canal);
+                }
+            }
+        }
+
+        private void atenderEscrituras() {
+            ConexionNio conexion;
+            while ((conexion = conexionesConEscritura.poll()) != null) {
+                conexion.activarEscritura();
+            }
+        }
+
+        private void atenderSeleccionadas() {
+            Iterator<SelectionKey> iterador = selector.selectedKeys().iterator();
+            while (iterador.hasNext()) {
+                SelectionKey clave = iterador.next();
+                iterador.remove();
+                ConexionNio conexion = (ConexionNio) clave.attachment();
+                try {
+                    if (clave.isValid() && clave.isReadable()) {
+                        conexion.leer();
+                    }
+                    if (clave.isValid() && clave.isWritable()) {
+                        conexion.escribir();
+                    }
+                } catch (IOException e) {
+                    conexion.cerrar();
+                } catch (RuntimeException e) {
+                    // Un fallo inesperado con una conexión solo la cierra a ella
+                    System.out.println("Error al atender una conexión, se cierra: " + e);
+                    conexion.cerrar();
+                }
+            }
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Estado de una conexión
+    // ──────────────────────────────────────────────
+    static class ConexionNio {
+
+        private final BucleSeleccion bucle;
+        private final SocketChannel canal;
+        private final SelectionKey clave;
+
+        // System.nanoTime() a partir del cual se cierra si aún no ha dicho su protocolo
+        private final long plazoCabecera = System.nanoTime() + Servidor.ESPERA_CABECERA_MS * 1_000_000L;
+
+        private final ByteBuffer bufferLectura = ByteBuffer.allocate(4096);
+        private byte[] recibido = new byte[4096];
+        private int longitudRecibida = 0;
+
+        private final Queue<ByteBuffer> pendientes = new ConcurrentLinkedQueue<>();
+        private final SalidaNio salida = new SalidaNio();
+        private final ColaSalida colaSalida;
+        private volatile boolean cerrada = false;
+        private volatile boolean cerrarTrasEscribir = false;
+
+        // Una conexión por encima del máximo solo recibe "ocupado" y se cierra
+        private final boolean admitida;
+        private boolean rechazoEnviado = false;
+        private int descartadosTrasRechazo = 0;
+
+        // Hasta saber qué protocolo habla el cliente, protocoloElegido es false.
+        // En serialización de Java hay un único canal; en binario, uno por ticket.
+        private boolean protocoloElegido = false;
+        private boolean binario;
+        private CanalCliente canalObjetos;
+        private EntradaObjetos entradaObjetos;
+        private long bytesObjetos = 0;
+        private volatile boolean peticionObjetosRecibida = false;
+
+        ConexionNio(BucleSeleccion bucle, SocketChannel canal, SelectionKey clave) {
+            this.bucle = bucle;
+            this.canal = canal;
+            this.clave = clave;
+            this.colaSalida = new ColaSalida(salida, Servidor.LIMITE_COLA_SALIDA, bucle.servidor.getMetricas(),
+                cola -> bucle.solicitarEscritura(this), this::solicitarCierre);
+            this.admitida = bucle.servidor.getAdmision().abrirConexion();
+            if (admitida) {
+                bucle.servidor.getMetricas().conexionAbierta();
+            } else {
+                bucle.servidor.getMetricas().conexionRechazada();
+            }
+        }
+
+        void leer() throws IOException {
+            int leidos = canal.read(bufferLectura);
+            if (leidos == -1) {
+                cerrar();
+                return;
+            }
+            bufferLectura.flip();
+            // Tras el rechazo se descarta lo que llegue hasta que el cliente cierre, pero sin
+            // esperar indefinidamente a uno que no deja de enviar
+            if (rechazoEnviado) {
+                descartadosTrasRechazo += leidos;
+                if (descartadosTrasRechazo > 64 * 1024) {
+                    cerrar();
+                    return;
+                }
+            }
+            // En serialización de Java solo se espera un ticket por conexión; lo demás se descarta
+            if (!peticionObjetosRecibida && !rechazoEnviado) {
+                acumular(bufferLectura);
+                procesarRecibido();
+            }
+            bufferLectura.clear();
+        }
+
+        private void acumular(ByteBuffer datos) {
+            int necesario = longitudRecibida + datos.remaining();
+            if (necesario > recibido.length) {
+                recibido = Arrays.copyOf(recibido, Math.max(necesario, recibido.length * 2));
+            }
+            datos.get(recibido, longitudRecibida, datos.remaining());
+            longitudRecibida = necesario;
+        }
+
+        private void procesarRecibido() throws IOException {
+            if (!admitida) {
+                rechazar();
+                return;
+            }
+            if (!protocoloElegido) {
+                protocoloElegido = elegirProtocolo();
+                if (!protocoloElegido) {
+                    return;
+                }
+            }
+            if (binario) {
+                leerTramas();
+            } else {
+                pasarAEntradaObjetos();
+            }
+        }
+
+        // Una rechazada también cuenta: sin cabecera no se le puede contestar "ocupado"
+        boolean esperaCabecera() {
+            return !cerrada && !protocoloElegido && !rechazoEnviado;
+        }
+
+        // Basta con saber el protocolo para contestar "ocupado" de forma que el cliente lo entienda
+        private void rechazar() throws IOException {
+            if (longitudRecibida < 2) {
+                return;
+            }
+            boolean binaria = Protocolo.esCabecera(recibido[0], recibido[1]);
+            bucle.servidor.getAdmision().escribirRechazoConexion(salida, binaria);
+            rechazoEnviado = true;
+            recibido = null;
+            solicitarCierre();
+        }
+
+        // Los dos primeros bytes dicen qué protocolo habla el cliente
+        private boolean elegirProtocolo() throws IOException {
+            if (longitudRecibida < 2) {
+                return false;
+            }
+            if (Protocolo.esCabecera(recibido[0], recibido[1])) {
+                if (longitudRecibida < Protocolo.CABECERA.length) {
+                    return false;
+                }
+                if (recibido[2] != Protocolo.VERSION) {
+                    throw new IOException("Versión de protocolo no soportada: " + recibido[2]);
+                }
+                consumir(Protocolo.CABECERA.length);
+                salida.write(Protocolo.CABECERA);
+                salida.flush();
+                binario = true;
+            } else {
+                // El cliente espera la cabecera del stream antes de leer la confirmación
+                ObjectOutputStream salidaObjetos = new ObjectOutputStream(salida);
+                salidaObjetos.flush();
+                canalObjetos = new CanalObjetos(colaSalida, salidaObjetos);
+                entradaObjetos = new EntradaObjetos();
+                Thread.ofVirtual().name("nio-objetos").start(this::leerPeticionObjetos);
+            }
+            return true;
+        }
+
+        private void leerTramas() throws IOException {
+            int posicion = 0;
+            while (longitudRecibida - posicion >= 4) {
+                int longitud = leerEntero(recibido, posicion);
+                Protocolo.comprobarLongitud(longitud);
+                if (longitudRecibida - posicion - 4 < longitud) {
+                    break; // Trama incompleta: se termina de leer en la siguiente lectura
+                }
+                Mensaje mensaje = Protocolo.decodificar(recibido, posicion + 4, longitud);
+                posicion += 4 + longitud;
+                if (mensaje.getTipo() == Protocolo.REGISTRAR) {
+                    CanalCliente canalTicket = new CanalBinario(colaSalida, salida, mensaje.getIdPeticion());
+                    bucle.servidor.registrarTicketSinEsperar(mensaje.getTicket(), canalTicket);
+                } else if (mensaje.getTipo() == Protocolo.REGISTRAR_LOTE) {
+                    bucle.servidor.registrarTicketsSinEsperar(mensaje.getTickets(), CanalBinario.paraLote(colaSalida, salida, mensaje));
+                }
+            }
+            consumir(posicion);
+        }
+
+        // Con serialización de Java no hay prefijo de longitud que diga cuándo está
+        // completa la petición. En lugar de deserializar desde el principio en cada
+        // lectura, un hilo virtual la va leyendo de los bytes que le pasa el hilo de E/S
+        // y se bloquea cuando faltan, sin bloquear al Selector.
+        private void pasarAEntradaObjetos() throws IOException {
+            bytesObjetos += longitudRecibida;
+            if (bytesObjetos > Protocolo.LONGITUD_MAXIMA_TRAMA) {
+                throw new IOException("Petición demasiado grande");
+            }
+            entradaObjetos.agregar(Arrays.copyOf(recibido, longitudRecibida));
+            longitudRecibida = 0;
+        }
+
+        private void leerPeticionObjetos() {
+            try {
+                Object peticion = new ObjectInputStream(entradaObjetos).readObject();
+                peticionObjetosRecibida = true;
+                if (peticion instanceof Ticket) {
+                    bucle.servidor.registrarTicketSinEsperar((Ticket) peticion, canalObjetos);
+                }
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                // Petición corrupta o conexión cerrada antes de completarla
+                if (!cerrada) {
+                    solicitarCierre();
+                }
+            }
+        }
+
+        private void consumir(int cantidad) {
+            System.arraycopy(recibido, cantidad, recibido, 0, longitudRecibida - cantidad);
+            longitudRecibida -= cantidad;
+        }
+
+        private static int leerEntero(byte[] bytes, int desde) {
+            return ((bytes[desde] & 0xFF) << 24) | ((bytes[desde + 1] & 0xFF) << 16)
+                 | ((bytes[desde + 2] & 0xFF) << 8) | (bytes[desde + 3] & 0xFF);
+        }
+
+        // Puede haber bytes pendientes o avisos en la cola de salida; escribir() mira ambos
+        void activarEscritura() {
+            if (clave.isValid()) {
+                clave.interestOps(clave.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void escribir() throws IOException {
+            while (true) {
+                ByteBuffer datos;
+                while ((datos = pendientes.peek()) != null) {
+                    canal.write(datos);
+                    if (datos.hasRemaining()) {
+                        return; // El buffer del socket está lleno, se sigue cuando vuelva a admitir datos
+                    }
+                    pendientes.poll();
+                }
+                // Socket al día: se pasa al siguiente tramo de la cola de salida, si lo hay
+                if (colaSalida.escribirPendientes(ColaSalida.TRAMO) == 0) {
+                    break;
+                }
+            }
+            clave.interestOps(SelectionKey.OP_READ);
+            if (cerrarTrasEscribir && rechazoEnviado) {
+                // Se cierra solo la salida; la conexión termina cuando el cliente cierre la suya
+                canal.shutdownOutput();
+            } else if (cerrarTrasEscribir) {
+                cerrar();
+            }
+        }
+
+        // La cola de salida se cerró: se cierra la conexión cuando salga lo ya escrito
+        private void solicitarCierre() {
+            cerrarTrasEscribir = true;
+            bucle.solicitarEscritura(this);
+        }
+
+        void cerrar() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            clave.cancel();
+            cerrarSilenciosamente(canal);
+            colaSalida.cerrar();
+            if (entradaObjetos != null) {
+                entradaObjetos.terminar();
+            }
+            if (admitida) {
+                bucle.servidor.getAdmision().conexionCerrada();
+                bucle.servidor.getMetricas().conexionCerrada();
+            }
+        }
+
+        // Recoge lo que escribe el canal del cliente y lo entrega al hilo de E/S en cada flush()
+        private class SalidaNio extends OutputStream {
+
+            private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+            @Override
+            public synchronized void write(int b) throws IOException {
+                comprobarAbierta();
+                buffer.write(b);
+            }
+
+            @Override
+            public synchronized void write(byte[] b, int desde, int longitud) throws IOException {
+                comprobarAbierta();
+                buffer.write(b, desde, longitud);
+            }
+
+            @Override
+            public synchronized void flush() throws IOException {
+                comprobarAbierta();
+                if (buffer.size() > 0) {
+                    pendientes.add(ByteBuffer.wrap(buffer.toByteArray()));
+                    buffer.reset();
+                    bucle.solicitarEscritura(ConexionNio.this);
+                }
+            }
+
+            private void comprobarAbierta() throws IOException {
+                if (cerrada) {
+                    throw new IOException("Conexión cerrada por el cliente");
+                }
+            }
+        }
+    }
+
+    // Bytes de una conexión en serialización de Java, del hilo de E/S al que deserializa
+    // su petición. agregar() nunca bloquea; read() espera hasta que haya más o se termine.
+    private static class EntradaObjetos extends InputStream {
+
+        private static final byte[] FIN = new byte[0];
+
+        private final BlockingQueue<byte[]> tramos = new LinkedBlockingQueue<>();
+        private byte[] actual = new byte[0];
+        private int posicion = 0;
+        private boolean terminada = false;
+
+        void agregar(byte[] datos) {
+            tramos.add(datos);
+        }
+
+        void terminar() {
+            tramos.add(FIN);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return hayDatos() ? actual[posicion++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int longitud) throws IOException {
+            if (longitud == 0) {
+                return 0;
+            }
+            if (!hayDatos()) {
+                return -1;
+            }
+            int copiados = Math.min(longitud, actual.length - posicion);
+            System.arraycopy(actual, posicion, destino, desde, copiados);
+            posicion += copiados;
+            return copiados;
+        }
+
+        private boolean hayDatos() throws IOException {
+            while (posicion == actual.length) {
+                if (terminada) {
+                    return false;
+                }
+                try {
+                    actual = tramos.take();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                posicion = 0;
+                terminada = actual == FIN;
+            }
+            return true;
+        }
+    }
+
+    private static void cerrarSilenciosamente(Closeable recurso) {
+        try {
+            recurso.close();
+        } catch (IOException e) {
+            // Nada que hacer: la conexión ya no se usa
+        }
+    }
+}
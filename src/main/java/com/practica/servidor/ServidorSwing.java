@@ -8,8 +8,19 @@ import javax.swing.border.TitledBorder;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * ServidorSwing — Interfaz gráfica del servidor HelpDesk.
@@ -20,11 +31,19 @@ import java.util.stream.Collectors;
  *   - PanelEstadoSistema   → Estadísticas en tiempo real
  *   - PanelTablaTickets    → Tabla de tickets
  *   - PanelAcciones        → Botones y filtros
+ *   - ReceptorEventos      → Recoge los cambios del servidor y los aplica una vez por fotograma
  *   - VentanaPrincipal     → Ensamblado general
  *
- * Actualización de la UI: un Timer ligero compara servidor.getContadorCambios()
- * cada 200ms. Solo llama a refrescar() si el contador cambió, lo que ocurre
- * únicamente cuando un hilo de Tecnico modifica el estado de un ticket.
+ * Tabla de tickets: el modelo no copia el historial. Pide al servidor solo las páginas
+ * de filas que se están viendo, ya filtradas y ordenadas (por ID, Prioridad o Estado,
+ * pulsando la cabecera), las carga en segundo plano junto con las vecinas y guarda unas
+ * pocas en memoria, así que desplazarse por un millón de tickets no bloquea el EDT.
+ *
+ * Actualización de la UI: el servidor publica cada cambio (ticket creado, asignado o
+ * resuelto). ReceptorEventos se queda con el último de cada ticket y, como mucho una vez
+ * por fotograma, la tabla los aplica: si el ticket no cambia de fila, se copia su estado
+ * en la página cargada sin preguntar al servidor; si las filas se mueven, solo se vuelven
+ * a pedir las páginas visibles.
  */
 public class ServidorSwing {
 
@@ -46,6 +65,13 @@ public class ServidorSwing {
         SwingUtilities.invokeLater(() -> new VentanaPrincipal().setVisible(true));
     }
 
+    // Crear, asignar y resolver desde la consola esperan a que el diario llegue a disco,
+    // así que no se hacen en el EDT sino en un hilo virtual, como los técnicos. Lo que
+    // haya que mostrar después vuelve al EDT con invokeLater.
+    static void enSegundoPlano(String nombre, Runnable accion) {
+        Thread.ofVirtual().name(nombre).start(accion);
+    }
+
     // ══════════════════════════════════════════════════════════════
     // MODELO DE TABLA
     // ══════════════════════════════════════════════════════════════
@@ -54,29 +80,256 @@ public class ServidorSwing {
 
         private static final String[] COLUMNAS = {"ID", "Cliente", "Prioridad", "Estado", "Técnico"};
 
-        private List<Ticket> listaTickets;
+        // La tabla solo guarda unas pocas páginas de la vista: aunque el servidor tenga
+        // millones de tickets, la consola nunca retiene más de PAGINAS_EN_CACHE * FILAS_POR_PAGINA
+        static final int FILAS_POR_PAGINA = 128;
+        static final int PAGINAS_EN_CACHE = 16;
+
+        // Lo que se muestra mientras llega la página de una fila
+        private static final String CARGANDO = "…";
+
+        private final Servidor servidor;
+
+        // Las páginas se piden al servidor en este hilo y se aplican después en el EDT
+        private final ExecutorService hiloPaginas = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "consola-paginas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        // Todo lo que sigue se usa solo desde el EDT.
+        // Vista actual: filtro (null = cualquiera) y orden, que resuelve el servidor
+        private String estado;
+        private String prioridad;
+        private OrdenTickets orden = OrdenTickets.ID;
+        private boolean descendente = false;
+
+        // Cambia con la vista: las páginas que lleguen de una vista anterior se descartan
+        private int generacion = 0;
+        private int totalFilas;
+
+        // Páginas cargadas, de la menos a la más recientemente usada
+        private final Map<Integer, List<Ticket>> paginas =
+            new LinkedHashMap<Integer, List<Ticket>>(PAGINAS_EN_CACHE * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<Ticket>> masAntigua) {
+                    return size() > PAGINAS_EN_CACHE;
+                }
+            };
+        private final Set<Integer> pedidas = new HashSet<>();
+
+        // Una sola recarga en curso; los cambios que lleguen mientras tanto piden otra al acabar
+        private boolean recargando = false;
+        private boolean recargarOtraVez = false;
 
-        public ModeloTablaTickets(List<Ticket> listaTickets) {
-            this.listaTickets = listaTickets;
+        public ModeloTablaTickets(Servidor servidor) {
+            this.servidor = servidor;
+            this.totalFilas = contarFilas();
         }
 
-        public void refrescar(List<Ticket> nuevaLista) {
-            this.listaTickets = nuevaLista;
+        // Cambia el filtro; si es el mismo, solo vuelve a pedir lo que se está mostrando
+        public void filtrar(String estado, String prioridad) {
+            if (Objects.equals(estado, this.estado) && Objects.equals(prioridad, this.prioridad)) {
+                recargar();
+                return;
+            }
+            this.estado = estado;
+            this.prioridad = prioridad;
+            reiniciar();
+        }
+
+        // Pulsar otra vez la misma columna invierte el orden
+        public void ordenar(OrdenTickets nuevoOrden) {
+            descendente = nuevoOrden == orden && !descendente;
+            orden = nuevoOrden;
+            reiniciar();
+        }
+
+        public OrdenTickets getOrden() {
+            return orden;
+        }
+
+        public boolean isDescendente() {
+            return descendente;
+        }
+
+        private void reiniciar() {
+            generacion++;
+            paginas.clear();
+            pedidas.clear();
+            totalFilas = contarFilas();
             fireTableDataChanged();
         }
 
+        private int contarFilas() {
+            return servidor.consultarPagina(estado, prioridad, orden, descendente, 0, 0).getTotal();
+        }
+
+        // Algo cambió en el servidor: se vuelven a pedir las páginas cargadas, que siguen
+        // mostrándose hasta que llegan las nuevas, y con ellas el número de filas
+        public void recargar() {
+            if (recargando) {
+                recargarOtraVez = true;
+                return;
+            }
+            recargando = true;
+            int generacionPedida = generacion;
+            List<Integer> numeros = new ArrayList<>(paginas.keySet());
+            if (numeros.isEmpty()) {
+                numeros.add(0);
+            }
+            String estadoPedido = estado, prioridadPedida = prioridad;
+            OrdenTickets ordenPedido = orden;
+            boolean descendentePedido = descendente;
+
+            hiloPaginas.execute(() -> {
+                List<PaginaTickets> recibidas = new ArrayList<>(numeros.size());
+                for (int numero : numeros) {
+                    recibidas.add(servidor.consultarPagina(estadoPedido, prioridadPedida, ordenPedido,
+                        descendentePedido, numero * FILAS_POR_PAGINA, FILAS_POR_PAGINA));
+                }
+                SwingUtilities.invokeLater(() -> {
+                    recargando = false;
+                    if (generacionPedida == generacion) {
+                        aplicarPaginas(recibidas);
+                    }
+                    if (recargarOtraVez) {
+                        recargarOtraVez = false;
+                        recargar();
+                    }
+                });
+            });
+        }
+
+        // Cambios de un fotograma. Si el ticket sigue en su fila (sin filtro por estado ni
+        // orden por estado), su estado y su técnico se copian en la página cargada que lo
+        // tiene. Si alguno añade, quita o mueve filas, las páginas que no se ven dejan de
+        // valer: se descartan y solo se vuelven a pedir las visibles.
+        public void aplicarCambios(Collection<CambioTicket> cambios, int primeraVisible, int ultimaVisible) {
+            boolean muevenFilas = false;
+            Map<Integer, Integer> filas = null;
+            int primera = Integer.MAX_VALUE;
+            int ultima = -1;
+            for (CambioTicket cambio : cambios) {
+                if (prioridad != null && !prioridad.equals(cambio.prioridad())) {
+                    continue; // La prioridad no cambia: nunca está en la vista
+                }
+                if (cambio.creado()) {
+                    // Uno nuevo que ya no cumple el filtro de estado no llega a verse
+                    muevenFilas |= estado == null || estado.equals(cambio.estado());
+                    continue;
+                }
+                if (estado != null || orden == OrdenTickets.ESTADO) {
+                    muevenFilas = true;
+                    continue;
+                }
+                if (filas == null) {
+                    filas = filasCargadas();
+                }
+                Integer fila = filas.get(cambio.id());
+                if (fila != null) {
+                    Ticket ticket = paginas.get(fila / FILAS_POR_PAGINA).get(fila % FILAS_POR_PAGINA);
+                    ticket.setEstado(cambio.estado());
+                    ticket.setTecnicoAsignado(cambio.tecnico());
+                    primera = Math.min(primera, fila);
+                    ultima = Math.max(ultima, fila);
+                }
+            }
+            if (primera <= ultima) {
+                fireTableRowsUpdated(primera, ultima);
+            }
+            if (muevenFilas) {
+                int desde = Math.max(primeraVisible, 0) / FILAS_POR_PAGINA;
+                int hasta = Math.max(ultimaVisible, 0) / FILAS_POR_PAGINA;
+                paginas.keySet().removeIf(numero -> numero < desde || numero > hasta);
+                recargar();
+            }
+        }
+
+        // Fila de cada ticket de las páginas cargadas, por id
+        private Map<Integer, Integer> filasCargadas() {
+            Map<Integer, Integer> filas = new HashMap<>();
+            for (Map.Entry<Integer, List<Ticket>> pagina : paginas.entrySet()) {
+                List<Ticket> tickets = pagina.getValue();
+                for (int i = 0; i < tickets.size(); i++) {
+                    filas.put(tickets.get(i).getId(), pagina.getKey() * FILAS_POR_PAGINA + i);
+                }
+            }
+            return filas;
+        }
+
+        private void pedir(int numero) {
+            if (numero < 0 || numero * FILAS_POR_PAGINA >= totalFilas || paginas.containsKey(numero)
+                    || !pedidas.add(numero)) {
+                return;
+            }
+            int generacionPedida = generacion;
+            String estadoPedido = estado, prioridadPedida = prioridad;
+            OrdenTickets ordenPedido = orden;
+            boolean descendentePedido = descendente;
+
+            hiloPaginas.execute(() -> {
+                PaginaTickets pagina = servidor.consultarPagina(estadoPedido, prioridadPedida, ordenPedido,
+                    descendentePedido, numero * FILAS_POR_PAGINA, FILAS_POR_PAGINA);
+                SwingUtilities.invokeLater(() -> {
+                    if (generacionPedida == generacion) {
+                        pedidas.remove(numero);
+                        aplicarPaginas(List.of(pagina));
+                    }
+                });
+            });
+        }
+
+        // Primero se ajusta el número de filas con el último total y después se avisa
+        // de un único rango de filas actualizadas que cubre todas las páginas recibidas
+        private void aplicarPaginas(List<PaginaTickets> recibidas) {
+            int primera = Integer.MAX_VALUE;
+            int ultima = -1;
+            for (PaginaTickets pagina : recibidas) {
+                paginas.put(pagina.getDesde() / FILAS_POR_PAGINA, pagina.getTickets());
+                primera = Math.min(primera, pagina.getDesde());
+                ultima = Math.max(ultima, pagina.getDesde() + FILAS_POR_PAGINA - 1);
+            }
+            ajustarTotal(recibidas.get(recibidas.size() - 1).getTotal());
+            ultima = Math.min(ultima, totalFilas - 1);
+            if (primera <= ultima) {
+                fireTableRowsUpdated(primera, ultima);
+            }
+        }
+
+        private void ajustarTotal(int nuevoTotal) {
+            int anterior = totalFilas;
+            totalFilas = nuevoTotal;
+            if (nuevoTotal > anterior) {
+                fireTableRowsInserted(anterior, nuevoTotal - 1);
+            } else if (nuevoTotal < anterior) {
+                fireTableRowsDeleted(nuevoTotal, anterior - 1);
+            }
+        }
+
+        // null si la página de esa fila aún no ha llegado. Pedir una página pide también
+        // las vecinas, para que al desplazarse la siguiente ya esté cargada.
         public Ticket obtenerTicket(int fila) {
-            return listaTickets.get(fila);
+            int numero = fila / FILAS_POR_PAGINA;
+            List<Ticket> pagina = paginas.get(numero);
+            pedir(numero);
+            pedir(numero + 1);
+            pedir(numero - 1);
+            int posicion = fila - numero * FILAS_POR_PAGINA;
+            return pagina == null || posicion >= pagina.size() ? null : pagina.get(posicion);
         }
 
-        @Override public int     getRowCount()                { return listaTickets.size(); }
+        @Override public int     getRowCount()                { return totalFilas; }
         @Override public int     getColumnCount()             { return COLUMNAS.length; }
         @Override public String  getColumnName(int columna)   { return COLUMNAS[columna]; }
         @Override public boolean isCellEditable(int f, int c) { return false; }
 
         @Override
         public Object getValueAt(int fila, int columna) {
-            Ticket ticket = listaTickets.get(fila);
+            Ticket ticket = obtenerTicket(fila);
+            if (ticket == null) {
+                return columna == 0 ? CARGANDO : "";
+            }
             switch (columna) {
                 case 0: return ticket.getId();
                 case 1: return ticket.getNombreCliente();
@@ -175,14 +428,16 @@ public class ServidorSwing {
                 String prioridad   = (String) comboPrioridad.getSelectedItem();
                 Ticket nuevoTicket = new Ticket(nombreCliente, descripcion, prioridad);
 
-                servidor.registrarTicketDirecto(nuevoTicket);
-
-                JOptionPane.showMessageDialog(this,
-                    "Ticket simulado creado para: " + nombreCliente,
-                    "Éxito", JOptionPane.INFORMATION_MESSAGE);
-
                 limpiarFormulario();
-                callbackAlCrear.run();
+                enSegundoPlano("consola-crear", () -> {
+                    servidor.registrarTicketDirecto(nuevoTicket);
+                    SwingUtilities.invokeLater(() -> {
+                        JOptionPane.showMessageDialog(this,
+                            "Ticket simulado creado para: " + nombreCliente,
+                            "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        callbackAlCrear.run();
+                    });
+                });
             });
 
             botonLimpiar.addActionListener(e -> limpiarFormulario());
@@ -231,15 +486,11 @@ public class ServidorSwing {
         }
 
         public void actualizar() {
-            List<Ticket> listaTickets = servidor.getListaTickets();
-
-            long pendientes = listaTickets.stream().filter(t -> "PENDIENTE".equals(t.getEstado())).count();
-            long enProceso  = listaTickets.stream().filter(t -> "EN_PROCESO".equals(t.getEstado())).count();
-            long resueltos  = listaTickets.stream().filter(t -> "RESUELTO".equals(t.getEstado())).count();
+            EstadisticasTickets estadisticas = servidor.getEstadisticas();
 
-            etiquetaPendientes.setText("Pendientes: "      + pendientes);
-            etiquetaEnProceso.setText("En proceso: "       + enProceso);
-            etiquetaResueltos.setText("Resueltos: "        + resueltos);
+            etiquetaPendientes.setText("Pendientes: "      + estadisticas.getPendientes());
+            etiquetaEnProceso.setText("En proceso: "       + estadisticas.getEnProceso());
+            etiquetaResueltos.setText("Resueltos: "        + estadisticas.getResueltos());
             etiquetaTecnicos.setText("Técnicos activos: "  + servidor.getListaTecnicos().size());
         }
     }
@@ -254,13 +505,13 @@ public class ServidorSwing {
         private ModeloTablaTickets modeloTabla;
 
         public PanelTablaTickets(Servidor servidor) {
-            modeloTabla  = new ModeloTablaTickets(servidor.getListaTickets());
+            modeloTabla  = new ModeloTablaTickets(servidor);
             tablaTickets = new JTable(modeloTabla);
-
             tablaTickets.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
             tablaTickets.setRowHeight(24);
             tablaTickets.setFont(FUENTE_GLOBAL);
             tablaTickets.getTableHeader().setFont(FUENTE_GLOBAL);
+            tablaTickets.getTableHeader().setReorderingAllowed(false);
             tablaTickets.setGridColor(new Color(210, 210, 210));
             tablaTickets.setDefaultRenderer(Object.class, new RenderizadorFuenteUniforme());
 
@@ -270,19 +521,53 @@ public class ServidorSwing {
             tablaTickets.getColumnModel().getColumn(3).setPreferredWidth(100);
             tablaTickets.getColumnModel().getColumn(4).setPreferredWidth(100);
 
+            // El orden lo resuelve el servidor: solo se puede ordenar por ID, Prioridad y Estado
+            tablaTickets.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+                @Override
+                public void mouseClicked(java.awt.event.MouseEvent e) {
+                    int columna = tablaTickets.columnAtPoint(e.getPoint());
+                    OrdenTickets orden = columna == 0 ? OrdenTickets.ID
+                                       : columna == 2 ? OrdenTickets.PRIORIDAD
+                                       : columna == 3 ? OrdenTickets.ESTADO
+                                       : null;
+                    if (orden != null) {
+                        modeloTabla.ordenar(orden);
+                        marcarColumnaOrdenada();
+                    }
+                }
+            });
+            marcarColumnaOrdenada();
+
             setBorder(new TitledBorder("Tickets"));
             setLayout(new BorderLayout());
             add(new JScrollPane(tablaTickets), BorderLayout.CENTER);
         }
 
-        public void actualizarTabla(List<Ticket> listaTickets) {
-            int filaSeleccionada = tablaTickets.getSelectedRow();
-            modeloTabla.refrescar(listaTickets);
-            if (filaSeleccionada >= 0 && filaSeleccionada < tablaTickets.getRowCount()) {
-                tablaTickets.setRowSelectionInterval(filaSeleccionada, filaSeleccionada);
+        private void marcarColumnaOrdenada() {
+            int ordenada = modeloTabla.getOrden() == OrdenTickets.ID ? 0
+                         : modeloTabla.getOrden() == OrdenTickets.PRIORIDAD ? 2 : 3;
+            for (int columna = 0; columna < modeloTabla.getColumnCount(); columna++) {
+                String nombre = modeloTabla.getColumnName(columna);
+                if (columna == ordenada) {
+                    nombre += modeloTabla.isDescendente() ? " ▼" : " ▲";
+                }
+                tablaTickets.getColumnModel().getColumn(columna).setHeaderValue(nombre);
             }
+            tablaTickets.getTableHeader().repaint();
+        }
+
+        public void filtrar(String estado, String prioridad) {
+            modeloTabla.filtrar(estado, prioridad);
+        }
+
+        public void aplicarCambios(Collection<CambioTicket> cambios) {
+            Rectangle visible = tablaTickets.getVisibleRect();
+            int primera = tablaTickets.rowAtPoint(visible.getLocation());
+            int ultima = tablaTickets.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+            modeloTabla.aplicarCambios(cambios, primera, ultima == -1 ? modeloTabla.getRowCount() - 1 : ultima);
         }
 
+        // null si no hay fila seleccionada o si su página aún no ha llegado
         public Ticket obtenerTicketSeleccionado() {
             int fila = tablaTickets.getSelectedRow();
             return fila == -1 ? null : modeloTabla.obtenerTicket(fila);
@@ -369,6 +654,7 @@ public class ServidorSwing {
 
             botonSimularTecnico.addActionListener(e -> {
                 servidor.registrarTecnicoSimulado(1);
+                panelEstadoSistema.actualizar();
                 int totalTecnicos = servidor.getListaTecnicos().size();
                 JOptionPane.showMessageDialog(this,
                     "Nuevo técnico creado: Tecnico-" + totalTecnicos
@@ -405,7 +691,13 @@ public class ServidorSwing {
                     null, nombresTecnicos, nombresTecnicos[0]);
 
                 if (tecnicoElegido != null) {
-                    servidor.asignarTecnicoManual(ticket, tecnicoElegido);
+                    enSegundoPlano("consola-asignar", () -> {
+                        if (!servidor.asignarTecnicoManual(ticket, tecnicoElegido)) {
+                            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                                "El ticket #" + ticket.getId() + " ya está resuelto y archivado.",
+                                "No permitido", JOptionPane.WARNING_MESSAGE));
+                        }
+                    });
                 }
             });
 
@@ -425,7 +717,7 @@ public class ServidorSwing {
                     "Resolver Ticket", JOptionPane.YES_NO_OPTION);
 
                 if (confirmacion == JOptionPane.YES_OPTION) {
-                    servidor.resolverTicketManual(ticket);
+                    enSegundoPlano("consola-resolver", () -> servidor.resolverTicketManual(ticket));
                 }
             });
 
@@ -460,27 +752,20 @@ public class ServidorSwing {
             });
         }
 
+        // Lo que cambió en el servidor durante el último fotograma
+        public void aplicarCambios(Collection<CambioTicket> cambios) {
+            panelTablaTickets.aplicarCambios(cambios);
+            panelEstadoSistema.actualizar();
+        }
+
         public void refrescar() {
             String estadoFiltro    = (String) comboFiltroEstado.getSelectedItem();
             String prioridadFiltro = (String) comboFiltroPrioridad.getSelectedItem();
 
-            List<Ticket> listaFiltrada = servidor.getListaTickets();
-
-            if (!ESTADO_TODOS.equals(estadoFiltro)) {
-                String estadoFinal = estadoFiltro;
-                listaFiltrada = listaFiltrada.stream()
-                    .filter(t -> estadoFinal.equals(t.getEstado()))
-                    .collect(Collectors.toList());
-            }
-
-            if (!PRIORIDAD_TODAS.equals(prioridadFiltro)) {
-                String prioridadFinal = prioridadFiltro;
-                listaFiltrada = listaFiltrada.stream()
-                    .filter(t -> prioridadFinal.equalsIgnoreCase(t.getPrioridad()))
-                    .collect(Collectors.toList());
-            }
-
-            panelTablaTickets.actualizarTabla(listaFiltrada);
+            // El servidor sirve solo las páginas que se ven, ya filtradas y ordenadas
+            panelTablaTickets.filtrar(
+                ESTADO_TODOS.equals(estadoFiltro) ? null : estadoFiltro,
+                PRIORIDAD_TODAS.equals(prioridadFiltro) ? null : prioridadFiltro);
             panelEstadoSistema.actualizar();
         }
 
@@ -495,6 +780,59 @@ public class ServidorSwing {
         }
     }
 
+    // ══════════════════════════════════════════════════════════════
+    // RECEPTOR DE EVENTOS DEL SERVIDOR
+    // ══════════════════════════════════════════════════════════════
+
+    // Último estado conocido de un ticket; "creado" si apareció en este fotograma
+    record CambioTicket(int id, boolean creado, String estado, String prioridad, String tecnico) {
+    }
+
+    static class ReceptorEventos {
+
+        // Unos 60 fotogramas por segundo como máximo
+        private static final int MILISEGUNDOS_FOTOGRAMA = 16;
+
+        // Por id: de cada ticket solo interesa cómo quedó en el fotograma
+        private final Map<Integer, CambioTicket> pendientes = new ConcurrentHashMap<>();
+        private final AtomicBoolean programado = new AtomicBoolean(false);
+        private final Timer temporizadorFotograma;
+        private final PanelAcciones panelAcciones;
+
+        public ReceptorEventos(Servidor servidor, PanelAcciones panelAcciones) {
+            this.panelAcciones = panelAcciones;
+            this.temporizadorFotograma = new Timer(MILISEGUNDOS_FOTOGRAMA, e -> aplicarPendientes());
+            this.temporizadorFotograma.setRepeats(false);
+            servidor.suscribir(this::recibir);
+        }
+
+        // Llega desde los hilos del servidor: se copia el estado de ahora, porque el
+        // Ticket sigue cambiando, y se programa un fotograma si no lo hay ya
+        private void recibir(EventoTicket evento) {
+            Ticket ticket = evento.getTicket();
+            CambioTicket cambio = new CambioTicket(ticket.getId(), evento.getTipo() == EventoTicket.Tipo.CREADO,
+                ticket.getEstado(), ticket.getPrioridad(), ticket.getTecnicoAsignado());
+            pendientes.merge(cambio.id(), cambio, (anterior, nuevo) -> new CambioTicket(nuevo.id(),
+                anterior.creado() || nuevo.creado(), nuevo.estado(), nuevo.prioridad(), nuevo.tecnico()));
+            if (programado.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(temporizadorFotograma::restart);
+            }
+        }
+
+        private void aplicarPendientes() {
+            // Lo que llegue a partir de aquí programará el siguiente fotograma
+            programado.set(false);
+            List<CambioTicket> cambios = new ArrayList<>();
+            for (Integer id : pendientes.keySet()) {
+                CambioTicket cambio = pendientes.remove(id);
+                if (cambio != null) {
+                    cambios.add(cambio);
+                }
+            }
+            panelAcciones.aplicarCambios(cambios);
+        }
+    }
+
     // ══════════════════════════════════════════════════════════════
     // VENTANA PRINCIPAL
     // ══════════════════════════════════════════════════════════════
@@ -531,18 +869,9 @@ public class ServidorSwing {
             setLocationRelativeTo(null);
             pack();
 
-            // Timer ligero: compara solo un int cada 200ms.
-            // Solo llama a refrescar() si el contador realmente cambió,
-            // lo que ocurre cuando un Tecnico modifica el estado de un ticket.
-            final int[] ultimaVersion = {servidor.getContadorCambios()};
-            Timer temporizadorLigero = new Timer(200, e -> {
-                int versionActual = servidor.getContadorCambios();
-                if (versionActual != ultimaVersion[0]) {
-                    ultimaVersion[0] = versionActual;
-                    panelAcciones.refrescar();
-                }
-            });
-            temporizadorLigero.start();
+            // Los cambios llegan empujados por el servidor y se aplican por fotogramas
+            new ReceptorEventos(servidor, panelAcciones);
+            panelAcciones.refrescar(); // Por si algo cambió antes de suscribirse
 
             addWindowListener(new java.awt.event.WindowAdapter() {
                 @Override
@@ -3,35 +3,54 @@ package com.practica.tecnico;
 import com.practica.servidor.Servidor;
 import com.practica.util.Ticket;
 
-public class Tecnico extends Thread {
+import java.util.List;
+
+// El Servidor decide en qué hilo corre cada técnico (de plataforma o virtual)
+public class Tecnico implements Runnable {
+
+    // Tickets que un técnico toma de una vez; se cambia con -Dhelpdesk.loteTecnico=N.
+    // Con 1 trabaja ticket a ticket, como siempre.
+    private static final int TAMANO_LOTE_POR_DEFECTO = Integer.getInteger("helpdesk.loteTecnico", 1);
 
     private final String nombre;
     private final Servidor servidor;
+    private final int tamanoLote;
 
     public Tecnico(String nombre, Servidor servidor) {
+        this(nombre, servidor, TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    public Tecnico(String nombre, Servidor servidor, int tamanoLote) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser al menos 1: " + tamanoLote);
+        }
         this.nombre = nombre;
         this.servidor = servidor;
+        this.tamanoLote = tamanoLote;
     }
 
     public String getNombre() {
         return nombre;
     }
 
+    public int getTamanoLote() {
+        return tamanoLote;
+    }
+
     @Override
     public void run() {
         try {
             while (true) {
-                Ticket ticket = servidor.tomarTicket(this.nombre);
-                servidor.notificarCliente(ticket);
-
-                Thread.sleep(10000); // Tiempo de trabajo
+                // Toma lo que haya pendiente, hasta tamanoLote, y avisa a todos sus clientes
+                List<Ticket> lote = servidor.tomarTickets(this.nombre, tamanoLote);
+                servidor.notificarClientes(lote);
 
-                ticket.setEstado("RESUELTO");
+                Thread.sleep(10000L * lote.size()); // Tiempo de trabajo, el mismo por ticket
 
-                servidor.notificarCliente(ticket);
+                servidor.resolverTickets(lote);
             }
         } catch (InterruptedException e) {
             System.out.println(e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
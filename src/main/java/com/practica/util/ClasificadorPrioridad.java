@@ -0,0 +1,332 @@
+package com.practica.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClasificadorPrioridad — Decide ALTA, MEDIA o BAJA a partir de la descripción de un
+ * ticket con un diccionario de palabras clave con peso.
+ *
+ * El diccionario se compila en un autómata de Aho-Corasick: la descripción se recorre
+ * una sola vez, carácter a carácter, tenga el diccionario 7 palabras o 7.000, y
+ * clasificar no reserva memoria. No distingue mayúsculas ni acentos (la ñ cuenta como n):
+ * "Está BLOQUEADO" contiene "bloqueado" y también "esta".
+ *
+ * Formato del diccionario (UTF-8, una entrada por línea, # empieza un comentario):
+ *
+ *   ALTA   1  urgente         cada aparición de "urgente" suma 1 a ALTA
+ *   MEDIA  1  va lento        una frase también vale como palabra clave
+ *   ALTA  -1  no es urgente   los pesos negativos compensan a otras entradas
+ *   UMBRAL ALTA 2             ALTA si la suma llega a 2 (por defecto, 1)
+ *
+ * Las apariciones cuentan como con String.contains: dentro de otras palabras y
+ * solapadas. El resultado es ALTA si la suma de ALTA alcanza su umbral; si no, MEDIA
+ * si la suma de MEDIA alcanza el suyo; si no, BAJA.
+ *
+ * El diccionario en uso (actual()) es el de -Dhelpdesk.diccionario=ruta, o el de
+ * siempre si no se indica. Si el fichero cambia se vuelve a compilar y se sustituye
+ * sin reiniciar; quien ya tenía el anterior termina con él su clasificación.
+ * Cada instancia es inmutable y se puede usar desde varios hilos a la vez.
+ */
+public final class ClasificadorPrioridad {
+
+    // Las mismas palabras clave que usaba el cliente antes de tener diccionario
+    public static final String DICCIONARIO_POR_DEFECTO = """
+        ALTA   1  urgente
+        ALTA   1  bloqueado
+        ALTA   1  emergencia
+        MEDIA  1  error
+        MEDIA  1  falla
+        MEDIA  1  fallo
+        MEDIA  1  lento
+        """;
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+
+    // Cada 5 s se mira si el fichero del diccionario ha cambiado
+    private static final long SEGUNDOS_ENTRE_REVISIONES = 5;
+
+    // Minúscula sin acentos de cada carácter latino; del resto solo se pasa a minúscula
+    private static final char[] PLEGADO = new char[0x250];
+
+    static {
+        for (char c = 0; c < PLEGADO.length; c++) {
+            String descompuesto = Normalizer.normalize(
+                String.valueOf(c).toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+            PLEGADO[c] = descompuesto.isEmpty() ? c : descompuesto.charAt(0);
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Autómata compilado
+    // ──────────────────────────────────────────────
+
+    // Cada carácter plegado que aparece en el diccionario es una columna de la tabla;
+    // la columna 0 es "cualquier otro carácter"
+    private final char[] columnas;
+    private final int numeroColumnas;
+
+    // transiciones[estado * numeroColumnas + columna]: el autómata ya es determinista,
+    // los enlaces de fallo están resueltos al compilar
+    private final int[] transiciones;
+
+    // pesos[estado * 2 + p]: lo que suma a ALTA (p = 0) y a MEDIA (p = 1) llegar a este
+    // estado, contando las palabras clave que terminan aquí y las que son sufijo suyo
+    private final int[] pesos;
+
+    private final int umbralAlta;
+    private final int umbralMedia;
+
+    private ClasificadorPrioridad(char[] columnas, int numeroColumnas, int[] transiciones, int[] pesos,
+                                  int umbralAlta, int umbralMedia) {
+        this.columnas = columnas;
+        this.numeroColumnas = numeroColumnas;
+        this.transiciones = transiciones;
+        this.pesos = pesos;
+        this.umbralAlta = umbralAlta;
+        this.umbralMedia = umbralMedia;
+    }
+
+    public String clasificar(CharSequence descripcion) {
+        int estado = 0;
+        int sumaAlta = 0;
+        int sumaMedia = 0;
+        for (int i = 0, n = descripcion.length(); i < n; i++) {
+            char plegado = plegar(descripcion.charAt(i));
+            int columna = plegado < columnas.length ? columnas[plegado] : 0;
+            estado = transiciones[estado * numeroColumnas + columna];
+            sumaAlta += pesos[estado * 2];
+            sumaMedia += pesos[estado * 2 + 1];
+        }
+        if (sumaAlta >= umbralAlta) {
+            return "ALTA";
+        }
+        if (sumaMedia >= umbralMedia) {
+            return "MEDIA";
+        }
+        return "BAJA";
+    }
+
+    private static char plegar(char c) {
+        return c < PLEGADO.length ? PLEGADO[c] : Character.toLowerCase(c);
+    }
+
+    // ──────────────────────────────────────────────
+    // Compilación
+    // ──────────────────────────────────────────────
+
+    public static ClasificadorPrioridad compilar(Reader diccionario) throws IOException {
+        List<char[]> patrones = new ArrayList<>();
+        List<int[]> prioridadYPeso = new ArrayList<>();
+        int[] umbrales = {1, 1};
+
+        BufferedReader lector = new BufferedReader(diccionario);
+        String linea;
+        int numeroLinea = 0;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            int comentario = linea.indexOf('#');
+            if (comentario >= 0) {
+                linea = linea.substring(0, comentario);
+            }
+            linea = linea.strip();
+            if (linea.isEmpty()) {
+                continue;
+            }
+            String[] partes = linea.split("\\s+", 3);
+            if (partes.length < 3) {
+                throw new IOException("Línea " + numeroLinea + " del diccionario incompleta: " + linea);
+            }
+            try {
+                if (partes[0].equalsIgnoreCase("UMBRAL")) {
+                    umbrales[indicePrioridad(partes[1], numeroLinea)] = Integer.parseInt(partes[2].strip());
+                    continue;
+                }
+                int prioridad = indicePrioridad(partes[0], numeroLinea);
+                int peso = Integer.parseInt(partes[1]);
+                char[] patron = partes[2].toCharArray();
+                for (int i = 0; i < patron.length; i++) {
+                    patron[i] = plegar(patron[i]);
+                }
+                patrones.add(patron);
+                prioridadYPeso.add(new int[]{prioridad, peso});
+            } catch (NumberFormatException e) {
+                throw new IOException("Línea " + numeroLinea + " del diccionario con un número no válido: " + linea);
+            }
+        }
+        return construir(patrones, prioridadYPeso, umbrales);
+    }
+
+    // Solo ALTA y MEDIA tienen palabras clave: BAJA es lo que queda
+    private static int indicePrioridad(String nombre, int numeroLinea) throws IOException {
+        if (nombre.equalsIgnoreCase(PRIORIDADES[0])) {
+            return 0;
+        }
+        if (nombre.equalsIgnoreCase(PRIORIDADES[1])) {
+            return 1;
+        }
+        throw new IOException("Línea " + numeroLinea + " del diccionario: se espera ALTA o MEDIA, no " + nombre);
+    }
+
+    private static ClasificadorPrioridad construir(List<char[]> patrones, List<int[]> prioridadYPeso, int[] umbrales) {
+        // Columnas: una por carácter distinto de los patrones
+        char maximo = 0;
+        for (char[] patron : patrones) {
+            for (char c : patron) {
+                maximo = (char) Math.max(maximo, c);
+            }
+        }
+        char[] columnas = new char[patrones.isEmpty() ? 0 : maximo + 1];
+        int numeroColumnas = 1;
+        for (char[] patron : patrones) {
+            for (char c : patron) {
+                if (columnas[c] == 0) {
+                    columnas[c] = (char) numeroColumnas++;
+                }
+            }
+        }
+
+        // Trie de los patrones: -1 donde no hay hijo
+        int capacidad = 1;
+        for (char[] patron : patrones) {
+            capacidad += patron.length;
+        }
+        int[] transiciones = new int[capacidad * numeroColumnas];
+        Arrays.fill(transiciones, -1);
+        int[] pesos = new int[capacidad * 2];
+        int estados = 1;
+        for (int i = 0; i < patrones.size(); i++) {
+            int estado = 0;
+            for (char c : patrones.get(i)) {
+                int celda = estado * numeroColumnas + columnas[c];
+                if (transiciones[celda] < 0) {
+                    transiciones[celda] = estados++;
+                }
+                estado = transiciones[celda];
+            }
+            int[] pyp = prioridadYPeso.get(i);
+            pesos[estado * 2 + pyp[0]] += pyp[1];
+        }
+
+        // Recorrido en anchura: cada estado hereda los pesos de su enlace de fallo y las
+        // transiciones que le faltan, de modo que clasificar nunca tiene que retroceder
+        int[] fallo = new int[estados];
+        ArrayDeque<Integer> pendientes = new ArrayDeque<>();
+        for (int columna = 0; columna < numeroColumnas; columna++) {
+            int hijo = transiciones[columna];
+            if (hijo < 0) {
+                transiciones[columna] = 0;
+            } else {
+                fallo[hijo] = 0;
+                pendientes.add(hijo);
+            }
+        }
+        while (!pendientes.isEmpty()) {
+            int estado = pendientes.poll();
+            pesos[estado * 2] += pesos[fallo[estado] * 2];
+            pesos[estado * 2 + 1] += pesos[fallo[estado] * 2 + 1];
+            for (int columna = 0; columna < numeroColumnas; columna++) {
+                int celda = estado * numeroColumnas + columna;
+                int hijo = transiciones[celda];
+                int porFallo = transiciones[fallo[estado] * numeroColumnas + columna];
+                if (hijo < 0) {
+                    transiciones[celda] = porFallo;
+                } else {
+                    fallo[hijo] = porFallo;
+                    pendientes.add(hijo);
+                }
+            }
+        }
+
+        return new ClasificadorPrioridad(columnas, numeroColumnas,
+            Arrays.copyOf(transiciones, estados * numeroColumnas), Arrays.copyOf(pesos, estados * 2),
+            umbrales[0], umbrales[1]);
+    }
+
+    // ──────────────────────────────────────────────
+    // Diccionario en uso y recarga
+    // ──────────────────────────────────────────────
+
+    private static final Path RUTA = rutaDesdePropiedades();
+    private static volatile ClasificadorPrioridad actual = porDefecto();
+    private static FileTime ultimaModificacion;
+
+    static {
+        if (RUTA != null) {
+            recargar();
+            ScheduledExecutorService revisiones = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "diccionario-prioridades");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            revisiones.scheduleWithFixedDelay(ClasificadorPrioridad::recargarSiCambia,
+                SEGUNDOS_ENTRE_REVISIONES, SEGUNDOS_ENTRE_REVISIONES, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Path rutaDesdePropiedades() {
+        String ruta = System.getProperty("helpdesk.diccionario", "");
+        return ruta.isEmpty() ? null : Path.of(ruta);
+    }
+
+    public static ClasificadorPrioridad porDefecto() {
+        try {
+            return compilar(new StringReader(DICCIONARIO_POR_DEFECTO));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ClasificadorPrioridad actual() {
+        return actual;
+    }
+
+    // Sustituye el diccionario en uso, por ejemplo con uno compilado desde otra fuente
+    public static void instalar(ClasificadorPrioridad clasificador) {
+        actual = clasificador;
+    }
+
+    // Vuelve a leer -Dhelpdesk.diccionario. Si el fichero no se puede leer o tiene
+    // errores, se avisa y se sigue con el diccionario anterior.
+    public static synchronized boolean recargar() {
+        if (RUTA == null) {
+            return false;
+        }
+        try {
+            // Un fichero con errores tampoco se vuelve a intentar hasta que cambie
+            ultimaModificacion = Files.getLastModifiedTime(RUTA);
+            try (Reader lector = Files.newBufferedReader(RUTA, StandardCharsets.UTF_8)) {
+                actual = compilar(lector);
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("No se pudo cargar el diccionario de prioridades " + RUTA + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static synchronized void recargarSiCambia() {
+        try {
+            if (!Files.getLastModifiedTime(RUTA).equals(ultimaModificacion)) {
+                recargar();
+            }
+        } catch (IOException e) {
+            // El fichero puede estar a medio reemplazar: se mira otra vez en la siguiente revisión
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.practica.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HistogramaLatencias — Histograma de latencias con precisión relativa fija,
+ * al estilo de HdrHistogram pero sin dependencias.
+ *
+ * Los valores hasta 255 tienen cubo propio. A partir de ahí, cada potencia de dos
+ * se divide en 128 cubos iguales, así que el error de cualquier percentil es
+ * menor del 1 % sea cual sea la magnitud, con unos pocos miles de contadores.
+ *
+ * registrar() no reserva memoria ni toma cerrojos y se puede llamar desde
+ * cualquier hilo. Las lecturas son aproximadas si se registra a la vez.
+ */
+public class HistogramaLatencias {
+
+    private static final int BITS_SUBCUBO = 7;
+    private static final int SUBCUBOS = 1 << BITS_SUBCUBO;   // 128 por potencia de dos
+    private static final int LINEALES = 2 * SUBCUBOS;         // 0..255 exactos
+    private static final int CUBOS = LINEALES + (63 - BITS_SUBCUBO) * SUBCUBOS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBOS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+
+    // Los valores negativos se registran como 0
+    public void registrar(long valor) {
+        long positivo = Math.max(0, valor);
+        cuentas.incrementAndGet(indice(positivo));
+        total.increment();
+        suma.add(positivo);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    public double getMedia() {
+        long cantidad = total.sum();
+        return cantidad == 0 ? 0 : (double) suma.sum() / cantidad;
+    }
+
+    public long getMaximo() {
+        for (int i = CUBOS - 1; i >= 0; i--) {
+            if (cuentas.get(i) > 0) {
+                return valorMaximo(i);
+            }
+        }
+        return 0;
+    }
+
+    // Valor por debajo del cual queda el porcentaje indicado (0-100) de las muestras
+    public long percentil(double porcentaje) {
+        long cantidad = total.sum();
+        if (cantidad == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(cantidad * porcentaje / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBOS; i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= objetivo) {
+                return valorMaximo(i);
+            }
+        }
+        return getMaximo();
+    }
+
+    // Muestras con valor menor o igual que limite, redondeando al cubo que lo contiene
+    public long contarHasta(long limite) {
+        int ultimo = indice(Math.max(0, limite));
+        long acumulado = 0;
+        for (int i = 0; i <= ultimo; i++) {
+            acumulado += cuentas.get(i);
+        }
+        return acumulado;
+    }
+
+    private static int indice(long valor) {
+        if (valor < LINEALES) {
+            return (int) valor;
+        }
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBCUBO;
+        int mantisa = (int) (valor >>> desplazamiento) - SUBCUBOS;
+        return LINEALES + (desplazamiento - 1) * SUBCUBOS + mantisa;
+    }
+
+    // Mayor valor que cae en el cubo: así un percentil nunca se informa por debajo
+    private static long valorMaximo(int indice) {
+        if (indice < LINEALES) {
+            return indice;
+        }
+        int desplazamiento = (indice - LINEALES) / SUBCUBOS + 1;
+        long mantisa = SUBCUBOS + (indice - LINEALES) % SUBCUBOS;
+        return ((mantisa + 1) << desplazamiento) - 1;
+    }
+}
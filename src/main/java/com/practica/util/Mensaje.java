@@ -0,0 +1,83 @@
+package com.practica.util;
+
+import java.util.List;
+
+// Mensaje ya decodificado del protocolo binario. Según el tipo, solo
+// algunos campos tienen valor (ver Protocolo).
+public class Mensaje {
+
+    private final byte tipo;
+    private final int idPeticion;
+    private final int idTicket;
+    private final String prioridad;
+    private final String estado;
+    private final String tecnico;
+    private final Ticket ticket;
+    private final List<Ticket> tickets;
+    private final int reintentarMs;
+
+    Mensaje(byte tipo, int idPeticion, int idTicket, String prioridad, String estado, String tecnico,
+            Ticket ticket, int reintentarMs) {
+        this(tipo, idPeticion, idTicket, prioridad, estado, tecnico, ticket, null, reintentarMs);
+    }
+
+    // REGISTRAR_LOTE
+    Mensaje(byte tipo, int idPeticion, List<Ticket> tickets) {
+        this(tipo, idPeticion, 0, null, null, null, null, tickets, 0);
+    }
+
+    private Mensaje(byte tipo, int idPeticion, int idTicket, String prioridad, String estado, String tecnico,
+                    Ticket ticket, List<Ticket> tickets, int reintentarMs) {
+        this.tipo = tipo;
+        this.idPeticion = idPeticion;
+        this.idTicket = idTicket;
+        this.prioridad = prioridad;
+        this.estado = estado;
+        this.tecnico = tecnico;
+        this.ticket = ticket;
+        this.tickets = tickets;
+        this.reintentarMs = reintentarMs;
+    }
+
+    public byte getTipo() {
+        return tipo;
+    }
+
+    // Número que el cliente dio a su petición de registro (REGISTRAR, REGISTRADO y OCUPADO);
+    // en REGISTRAR_LOTE, el del primer ticket del lote
+    public int getIdPeticion() {
+        return idPeticion;
+    }
+
+    public int getIdTicket() {
+        return idTicket;
+    }
+
+    // Solo en REGISTRADO: la prioridad con la que el servidor registró el ticket
+    public String getPrioridad() {
+        return prioridad;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public String getTecnico() {
+        return tecnico;
+    }
+
+    // Solo en REGISTRAR: el ticket tal como lo envió el cliente, todavía sin id
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    // Solo en REGISTRAR_LOTE: los tickets del lote, en orden de número de petición
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    // Solo en OCUPADO: cuánto sugiere el servidor esperar antes de reintentar
+    public int getReintentarMs() {
+        return reintentarMs;
+    }
+}
@@ -0,0 +1,310 @@
+package com.practica.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Protocolo — Formato binario de los mensajes entre Cliente y Servidor.
+ *
+ * Al conectar, cada lado envía la cabecera 'H' 'D' + versión. Después, cada mensaje
+ * es una trama [int longitud][byte tipo][datos], donde longitud cuenta el tipo y los datos.
+ *
+ *   REGISTRAR     (cliente → servidor)  int idPeticion, nombreCliente, descripcion, byte prioridad
+ *   REGISTRAR_LOTE (cliente → servidor) int idPeticion, int cantidad, y por cada ticket
+ *                                       nombreCliente, descripcion, byte prioridad
+ *   REGISTRADO    (servidor → cliente)  int idPeticion, int id, byte prioridad
+ *   ACTUALIZACION (servidor → cliente)  int id, byte estado, tecnicoAsignado
+ *   OCUPADO       (servidor → cliente)  int idPeticion, int reintentarMs
+ *
+ * Un REGISTRAR_LOTE equivale a "cantidad" REGISTRAR con números de petición
+ * consecutivos a partir de idPeticion, y cada uno recibe su propio REGISTRADO u OCUPADO.
+ *
+ * REGISTRADO lleva la prioridad con la que quedó el ticket, que puede no ser la
+ * enviada si el servidor clasifica él mismo las descripciones.
+ *
+ * OCUPADO rechaza un registro porque el servidor está al límite y sugiere cuándo
+ * reintentarlo. Si lo que sobra es la conexión, el servidor contesta a la cabecera
+ * con 'H' 'D' 0 + int reintentarMs y la cierra.
+ *
+ * Los textos viajan como [int longitud][bytes UTF-8], sin el límite de 65535 bytes de
+ * writeUTF(); solo los acota el tamaño máximo de trama.
+ *
+ * Prioridades y estados viajan como un byte y las actualizaciones solo llevan lo que
+ * cambia, no el ticket entero. Una misma conexión puede llevar muchos tickets: el
+ * cliente numera sus peticiones y, una vez registrado, cada aviso va con el id del ticket.
+ *
+ * Convive con la serialización de Java: el servidor distingue ambos protocolos por
+ * los dos primeros bytes de la conexión.
+ */
+public class Protocolo {
+
+    public static final byte VERSION = 4;
+    public static final byte[] CABECERA = {'H', 'D', VERSION};
+
+    // Versión que el servidor pone en su cabecera cuando no admite la conexión
+    private static final byte VERSION_OCUPADO = 0;
+
+    public static final byte REGISTRAR     = 1;
+    public static final byte REGISTRADO    = 2;
+    public static final byte ACTUALIZACION = 3;
+    public static final byte OCUPADO       = 4;
+    public static final byte REGISTRAR_LOTE = 5;
+
+    // Cota para no reservar memoria a ciegas si llega una longitud corrupta. Un ticket
+    // que no quepa en una trama no se puede enviar.
+    public static final int LONGITUD_MAXIMA_TRAMA = 16 * 1024 * 1024;
+
+    // Los lotes se parten en tramas de hasta este tamaño, salvo un ticket que ya lo supere
+    private static final int LONGITUD_TRAMA_LOTE = 256 * 1024;
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+    private static final String[] ESTADOS     = {"PENDIENTE", "EN_PROCESO", "RESUELTO"};
+
+    public static boolean esCabecera(byte primero, byte segundo) {
+        return primero == CABECERA[0] && segundo == CABECERA[1];
+    }
+
+    // Cualquier prioridad desconocida se envía como BAJA, igual que la trata el servidor
+    public static byte codigoPrioridad(String prioridad) {
+        for (byte i = 0; i < PRIORIDADES.length; i++) {
+            if (PRIORIDADES[i].equalsIgnoreCase(prioridad)) {
+                return i;
+            }
+        }
+        return 2;
+    }
+
+    public static String prioridad(byte codigo) throws IOException {
+        return desdeCodigo(PRIORIDADES, codigo, "prioridad");
+    }
+
+    public static byte codigoEstado(String estado) {
+        for (byte i = 0; i < ESTADOS.length; i++) {
+            if (ESTADOS[i].equals(estado)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Estado desconocido: " + estado);
+    }
+
+    public static String estado(byte codigo) throws IOException {
+        return desdeCodigo(ESTADOS, codigo, "estado");
+    }
+
+    // ──────────────────────────────────────────────
+    // Codificación
+    // ──────────────────────────────────────────────
+
+    public static byte[] tramaRegistro(int idPeticion, Ticket ticket) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream datos = iniciarTrama(bytes, REGISTRAR);
+        datos.writeInt(idPeticion);
+        escribirTexto(datos, ticket.getNombreCliente());
+        escribirTexto(datos, ticket.getDescripcion());
+        datos.writeByte(codigoPrioridad(ticket.getPrioridad()));
+        return cerrarTrama(bytes);
+    }
+
+    // Varias tramas si el lote no cabe en una. Cada una empieza en el número de petición
+    // que le toca, de modo que el ticket i del lote siempre es la petición idPeticion + i.
+    public static List<byte[]> tramasRegistroLote(int idPeticion, List<Ticket> tickets) throws IOException {
+        List<byte[]> tramas = new ArrayList<>();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        DataOutputStream datosActual = new DataOutputStream(actual);
+        ByteArrayOutputStream uno = new ByteArrayOutputStream();
+        DataOutputStream datosUno = new DataOutputStream(uno);
+        int primera = idPeticion;
+        int cantidad = 0;
+        for (Ticket ticket : tickets) {
+            uno.reset();
+            escribirTexto(datosUno, ticket.getNombreCliente());
+            escribirTexto(datosUno, ticket.getDescripcion());
+            datosUno.writeByte(codigoPrioridad(ticket.getPrioridad()));
+            // 4 de longitud, 1 de tipo y 8 de idPeticion y cantidad
+            if (cantidad > 0 && 13 + actual.size() + uno.size() - 4 > LONGITUD_TRAMA_LOTE) {
+                tramas.add(tramaLote(primera, cantidad, actual));
+                actual.reset();
+                primera += cantidad;
+                cantidad = 0;
+            }
+            uno.writeTo(datosActual);
+            cantidad++;
+        }
+        if (cantidad > 0) {
+            tramas.add(tramaLote(primera, cantidad, actual));
+        }
+        return tramas;
+    }
+
+    private static byte[] tramaLote(int idPeticion, int cantidad, ByteArrayOutputStream tickets) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(13 + tickets.size());
+        DataOutputStream datos = iniciarTrama(bytes, REGISTRAR_LOTE);
+        datos.writeInt(idPeticion);
+        datos.writeInt(cantidad);
+        tickets.writeTo(datos);
+        return cerrarTrama(bytes);
+    }
+
+    public static byte[] tramaRegistrado(int idPeticion, Ticket ticket) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(14);
+        DataOutputStream datos = iniciarTrama(bytes, REGISTRADO);
+        datos.writeInt(idPeticion);
+        datos.writeInt(ticket.getId());
+        datos.writeByte(codigoPrioridad(ticket.getPrioridad()));
+        return cerrarTrama(bytes);
+    }
+
+    public static byte[] tramaActualizacion(Ticket ticket) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream datos = iniciarTrama(bytes, ACTUALIZACION);
+        datos.writeInt(ticket.getId());
+        datos.writeByte(codigoEstado(ticket.getEstado()));
+        escribirTexto(datos, ticket.getTecnicoAsignado());
+        return cerrarTrama(bytes);
+    }
+
+    public static byte[] cabeceraOcupado(int reintentarMs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(7);
+        DataOutputStream datos = new DataOutputStream(bytes);
+        datos.write(CABECERA, 0, 2);
+        datos.writeByte(VERSION_OCUPADO);
+        datos.writeInt(reintentarMs);
+        return bytes.toByteArray();
+    }
+
+    public static byte[] tramaOcupado(int idPeticion, int reintentarMs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(13);
+        DataOutputStream datos = iniciarTrama(bytes, OCUPADO);
+        datos.writeInt(idPeticion);
+        datos.writeInt(reintentarMs);
+        return cerrarTrama(bytes);
+    }
+
+    // Se reservan los 4 bytes de la longitud, que se rellenan en cerrarTrama()
+    private static DataOutputStream iniciarTrama(ByteArrayOutputStream bytes, byte tipo) throws IOException {
+        DataOutputStream datos = new DataOutputStream(bytes);
+        datos.writeInt(0);
+        datos.writeByte(tipo);
+        return datos;
+    }
+
+    private static byte[] cerrarTrama(ByteArrayOutputStream bytes) throws IOException {
+        byte[] trama = bytes.toByteArray();
+        int longitud = trama.length - 4;
+        if (longitud > LONGITUD_MAXIMA_TRAMA) {
+            throw new IOException("Mensaje demasiado grande para el protocolo: " + longitud + " bytes");
+        }
+        trama[0] = (byte) (longitud >>> 24);
+        trama[1] = (byte) (longitud >>> 16);
+        trama[2] = (byte) (longitud >>> 8);
+        trama[3] = (byte) longitud;
+        return trama;
+    }
+
+    // ──────────────────────────────────────────────
+    // Decodificación
+    // ──────────────────────────────────────────────
+
+    public static void leerCabecera(DataInputStream entrada) throws IOException {
+        byte[] cabecera = new byte[CABECERA.length];
+        entrada.readFully(cabecera);
+        if (!esCabecera(cabecera[0], cabecera[1])) {
+            throw new IOException("La conexión no usa el protocolo binario");
+        }
+        if (cabecera[2] == VERSION_OCUPADO) {
+            throw new ServidorOcupadoException(entrada.readInt());
+        }
+        if (cabecera[2] != VERSION) {
+            throw new IOException("Versión de protocolo no soportada: " + cabecera[2]);
+        }
+    }
+
+    public static Mensaje leerTrama(DataInputStream entrada) throws IOException {
+        int longitud = entrada.readInt();
+        comprobarLongitud(longitud);
+        byte[] cuerpo = new byte[longitud];
+        entrada.readFully(cuerpo);
+        return decodificar(cuerpo, 0, longitud);
+    }
+
+    public static void comprobarLongitud(int longitud) throws IOException {
+        if (longitud <= 0 || longitud > LONGITUD_MAXIMA_TRAMA) {
+            throw new IOException("Longitud de trama no válida: " + longitud);
+        }
+    }
+
+    // Decodifica el cuerpo de una trama (tipo + datos), sin el prefijo de longitud
+    public static Mensaje decodificar(byte[] buffer, int desde, int longitud) throws IOException {
+        DataInputStream datos = new DataInputStream(new ByteArrayInputStream(buffer, desde, longitud));
+        byte tipo = datos.readByte();
+        switch (tipo) {
+            case REGISTRAR: {
+                int idPeticion       = datos.readInt();
+                String nombreCliente = leerTexto(datos);
+                String descripcion   = leerTexto(datos);
+                String prioridad     = prioridad(datos.readByte());
+                return new Mensaje(tipo, idPeticion, 0, null, null, null, new Ticket(nombreCliente, descripcion, prioridad), 0);
+            }
+            case REGISTRAR_LOTE: {
+                int idPeticion = datos.readInt();
+                int cantidad   = datos.readInt();
+                // Cada ticket ocupa al menos 9 bytes: una cantidad mayor es una trama corrupta
+                if (cantidad <= 0 || cantidad > longitud / 9) {
+                    throw new IOException("Cantidad de tickets no válida en el lote: " + cantidad);
+                }
+                List<Ticket> tickets = new ArrayList<>(cantidad);
+                for (int i = 0; i < cantidad; i++) {
+                    String nombreCliente = leerTexto(datos);
+                    String descripcion   = leerTexto(datos);
+                    tickets.add(new Ticket(nombreCliente, descripcion, prioridad(datos.readByte())));
+                }
+                return new Mensaje(tipo, idPeticion, tickets);
+            }
+            case REGISTRADO: {
+                int idPeticion = datos.readInt();
+                int idTicket     = datos.readInt();
+                String prioridad = prioridad(datos.readByte());
+                return new Mensaje(tipo, idPeticion, idTicket, prioridad, null, null, null, 0);
+            }
+            case ACTUALIZACION: {
+                int idTicket   = datos.readInt();
+                String estado  = estado(datos.readByte());
+                String tecnico = leerTexto(datos);
+                return new Mensaje(tipo, 0, idTicket, null, estado, tecnico, null, 0);
+            }
+            case OCUPADO: {
+                int idPeticion   = datos.readInt();
+                int reintentarMs = datos.readInt();
+                return new Mensaje(tipo, idPeticion, 0, null, null, null, null, reintentarMs);
+            }
+            default:
+                throw new IOException("Tipo de mensaje desconocido: " + tipo);
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream datos, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        datos.writeInt(bytes.length);
+        datos.write(bytes);
+    }
+
+    private static String leerTexto(DataInputStream datos) throws IOException {
+        int longitud = datos.readInt();
+        // available() es exacto sobre un array: una longitud mayor es una trama corrupta
+        if (longitud < 0 || longitud > datos.available()) {
+            throw new IOException("Longitud de texto no válida: " + longitud);
+        }
+        byte[] bytes = new byte[longitud];
+        datos.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String desdeCodigo(String[] valores, byte codigo, String campo) throws IOException {
+        if (codigo < 0 || codigo >= valores.length) {
+            throw new IOException("Código de " + campo + " no válido: " + codigo);
+        }
+        return valores[codigo];
+    }
+}
@@ -0,0 +1,19 @@
+package com.practica.util;
+
+import java.io.IOException;
+
+// El servidor está al límite y no admite la conexión en este momento.
+// Lleva el tiempo que sugiere esperar antes de volver a intentarlo.
+public class ServidorOcupadoException extends IOException {
+
+    private final int reintentarMs;
+
+    public ServidorOcupadoException(int reintentarMs) {
+        super("Servidor ocupado, reintentar en " + reintentarMs + " ms");
+        this.reintentarMs = reintentarMs;
+    }
+
+    public int getReintentarMs() {
+        return reintentarMs;
+    }
+}
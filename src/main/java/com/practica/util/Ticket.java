@@ -39,6 +39,10 @@ public class Ticket implements Serializable {
         return prioridad;
     }
 
+    public void setPrioridad(String prioridad) {
+        this.prioridad = prioridad;
+    }
+
     public String getEstado() {
         return estado;
     }
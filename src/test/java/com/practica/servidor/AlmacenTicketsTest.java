@@ -0,0 +1,44 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Búsqueda por tramos de los tickets que se pueden archivar
+class AlmacenTicketsTest {
+
+    @Test
+    void archivablesAvanzaPorTramosYVuelveAEmpezar() {
+        AlmacenTickets almacen = new AlmacenTickets();
+        for (int id = 1; id <= 10; id++) {
+            almacen.agregar(id, "c" + id, "d" + id, "MEDIA", id == 6 ? "EN_PROCESO" : "RESUELTO", "T", 0);
+        }
+        long limite = System.currentTimeMillis() + 2000;
+
+        assertEquals(List.of(1, 2, 3, 4), ids(almacen.archivables(limite, 4)));
+        assertFalse(almacen.vueltaArchivablesTerminada());
+        // El 6 sigue abierto: se revisa, pero no sale
+        assertEquals(List.of(5, 7, 8), ids(almacen.archivables(limite, 4)));
+        assertEquals(List.of(9, 10), ids(almacen.archivables(limite, 4)));
+        assertTrue(almacen.vueltaArchivablesTerminada());
+        assertEquals(List.of(1, 2, 3, 4), ids(almacen.archivables(limite, 4)));
+    }
+
+    @Test
+    void archivablesRespetaElLimiteDeEdad() {
+        AlmacenTickets almacen = new AlmacenTickets();
+        almacen.agregar(1, "c", "d", "ALTA", "RESUELTO", "T", 0);
+
+        assertTrue(almacen.archivables(System.currentTimeMillis() - 60_000, 10).isEmpty());
+        assertTrue(almacen.vueltaArchivablesTerminada());
+    }
+
+    private static List<Integer> ids(List<Ticket> tickets) {
+        return tickets.stream().map(Ticket::getId).toList();
+    }
+}
@@ -0,0 +1,133 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Escritura, índice y caché del archivo de tickets resueltos
+class ArchivoTicketsTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void leeLoIndexadoYSeConservaAlReabrir() throws Exception {
+        try (ArchivoTickets archivo = new ArchivoTickets(directorio, 16)) {
+            List<Ticket> tickets = List.of(resuelto(1, "ALTA"), resuelto(2, "BAJA"), resuelto(5_000, "MEDIA"));
+            indexarTodos(archivo, tickets);
+
+            assertEquals(5_000, archivo.getMaximoId());
+            assertTrue(archivo.contiene(5_000));
+            assertFalse(archivo.contiene(3));
+            assertEquals(2, archivo.prioridad(2));
+        }
+
+        try (ArchivoTickets archivo = new ArchivoTickets(directorio, 16)) {
+            assertEquals(5_000, archivo.getMaximoId());
+            Ticket ticket = archivo.leer(5_000);
+            assertEquals(5_000, ticket.getId());
+            assertEquals("cliente 5000", ticket.getNombreCliente());
+            assertEquals("descripción 5000", ticket.getDescripcion());
+            assertEquals("MEDIA", ticket.getPrioridad());
+            assertEquals("RESUELTO", ticket.getEstado());
+            assertEquals("Técnico 5000", ticket.getTecnicoAsignado());
+        }
+    }
+
+    @Test
+    void ignoraLosRegistrosSinEntradaEnElIndice() throws Exception {
+        try (ArchivoTickets archivo = new ArchivoTickets(directorio, 16)) {
+            indexarTodos(archivo, List.of(resuelto(1, "ALTA")));
+            // Escrito pero no indexado: como un ticket reabierto o una tanda cortada
+            archivo.escribir(List.of(resuelto(2, "MEDIA")));
+            archivo.forzarIndice();
+        }
+
+        try (ArchivoTickets archivo = new ArchivoTickets(directorio, 16)) {
+            assertTrue(archivo.contiene(1));
+            assertFalse(archivo.contiene(2));
+            assertEquals(1, archivo.getMaximoId());
+        }
+    }
+
+    @Test
+    void laCacheGuardaLosMasRecientesYDevuelveCopias() throws Exception {
+        try (ArchivoTickets archivo = new ArchivoTickets(directorio, 2)) {
+            List<Ticket> tickets = List.of(resuelto(1, "ALTA"), resuelto(2, "ALTA"), resuelto(3, "ALTA"));
+            long[] posiciones = indexarTodos(archivo, tickets);
+
+            Ticket primero = archivo.leer(1);
+            assertNotSame(primero, archivo.leer(1));
+            primero.setTecnicoAsignado("otro");
+            assertEquals("Técnico 1", archivo.leer(1).getTecnicoAsignado());
+
+            archivo.leer(2);
+            archivo.leer(1);
+            // Con sitio para dos, leer el 3 saca de la caché al 2, el usado hace más tiempo
+            archivo.leer(3);
+
+            // Se cambian en disco los tres nombres: solo el 2 se vuelve a leer de ahí
+            for (long posicion : posiciones) {
+                sobrescribirNombre(posicion, "CLIENTE X");
+            }
+            assertEquals("cliente 1", archivo.leer(1).getNombreCliente());
+            assertEquals("cliente 3", archivo.leer(3).getNombreCliente());
+            assertEquals("CLIENTE X", archivo.leer(2).getNombreCliente());
+        }
+    }
+
+    @Test
+    void enSoloLecturaLeeSinModificarLosFicheros() throws Exception {
+        try (ArchivoTickets archivo = new ArchivoTickets(directorio, 16)) {
+            indexarTodos(archivo, List.of(resuelto(1, "BAJA"), resuelto(2, "ALTA")));
+        }
+        long tamanoIndice = Files.size(directorio.resolve("indice.dat"));
+        long tamanoSegmento = Files.size(directorio.resolve("archivo.dat"));
+
+        try (ArchivoTickets archivo = new ArchivoTickets(directorio, 16, true)) {
+            assertEquals(2, archivo.getMaximoId());
+            assertEquals("BAJA", archivo.leer(1).getPrioridad());
+            // Un id más allá del final del índice no está, aunque no quepa en el mapa
+            assertFalse(archivo.contiene(100_000));
+        }
+        assertEquals(tamanoIndice, Files.size(directorio.resolve("indice.dat")));
+        assertEquals(tamanoSegmento, Files.size(directorio.resolve("archivo.dat")));
+    }
+
+    private static long[] indexarTodos(ArchivoTickets archivo, List<Ticket> tickets) throws Exception {
+        long[] posiciones = archivo.escribir(tickets);
+        for (int i = 0; i < tickets.size(); i++) {
+            archivo.indexar(tickets.get(i), posiciones[i]);
+        }
+        archivo.forzarIndice();
+        return posiciones;
+    }
+
+    // El nombre va tras la longitud del registro, el id y la longitud del propio nombre
+    private void sobrescribirNombre(long posicion, String nombre) throws Exception {
+        try (FileChannel canal = FileChannel.open(directorio.resolve("archivo.dat"), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(nombre.getBytes(StandardCharsets.UTF_8)), posicion + 12);
+        }
+    }
+
+    private static Ticket resuelto(int id, String prioridad) {
+        Ticket ticket = new Ticket("cliente " + id, "descripción " + id, prioridad);
+        ticket.setId(id);
+        ticket.setEstado("RESUELTO");
+        ticket.setTecnicoAsignado("Técnico " + id);
+        return ticket;
+    }
+}
@@ -0,0 +1,103 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Avisos encolados por conexión: fusión por ticket, desbordamiento y lotes
+class ColaSalidaTest {
+
+    private final MetricasServidor metricas = new MetricasServidor(() -> null);
+    private final List<String> escritos = new ArrayList<>();
+
+    private final ColaSalida.Destino destino = new ColaSalida.Destino() {
+        @Override
+        public void escribirConfirmacion(Ticket ticket) {
+            escritos.add("confirmacion " + ticket.getId() + " " + ticket.getEstado());
+        }
+
+        @Override
+        public void escribirActualizacion(Ticket ticket) {
+            escritos.add("actualizacion " + ticket.getId() + " " + ticket.getEstado() + " " + ticket.getTecnicoAsignado());
+        }
+
+        @Override
+        public void escribirOcupado(int reintentarMs) {
+            escritos.add("ocupado " + reintentarMs);
+        }
+    };
+
+    @Test
+    void variosAvisosDelMismoTicketSeQuedanEnElUltimoEstado() throws IOException {
+        ColaSalida cola = new ColaSalida(new ByteArrayOutputStream(), 10, metricas, c -> { }, null);
+        Ticket ticket = ticket(1);
+        cola.confirmar(destino, ticket);
+        ticket.setEstado("EN_PROCESO");
+        ticket.setTecnicoAsignado("Tecnico-1");
+        cola.actualizar(destino, ticket);
+        cola.actualizar(destino, ticket(2));
+        ticket.setEstado("RESUELTO");
+        cola.actualizar(destino, ticket);
+        // Lo encolado es una copia: cambiar el ticket después no altera lo que sale
+        ticket.setTecnicoAsignado("Tecnico-9");
+
+        cola.vaciar();
+
+        assertEquals(List.of(
+            "confirmacion 1 PENDIENTE",
+            "actualizacion 1 RESUELTO Tecnico-1",
+            "actualizacion 2 PENDIENTE "), escritos);
+    }
+
+    @Test
+    void desbordarElLimiteCierraLaConexion() throws IOException {
+        AtomicInteger cierres = new AtomicInteger();
+        ColaSalida cola = new ColaSalida(new ByteArrayOutputStream(), 2, metricas, c -> { }, cierres::incrementAndGet);
+        cola.actualizar(destino, ticket(1));
+        cola.actualizar(destino, ticket(2));
+        // Otro aviso de un ticket ya encolado no ocupa sitio nuevo
+        cola.actualizar(destino, ticket(2));
+
+        assertThrows(IOException.class, () -> cola.actualizar(destino, ticket(3)));
+        assertEquals(1, cierres.get());
+        assertEquals(1, metricas.getClientesDesbordados());
+        assertEquals(2, metricas.getNotificacionesFallidas());
+        assertThrows(IOException.class, () -> cola.actualizar(destino, ticket(1)));
+        assertEquals(0, cola.escribirPendientes(ColaSalida.TRAMO));
+        assertEquals(List.of(), escritos);
+    }
+
+    @Test
+    void enLoteProgramaCadaColaUnaVezAlFinal() {
+        List<ColaSalida> programadas = new ArrayList<>();
+        ColaSalida primera = new ColaSalida(new ByteArrayOutputStream(), 10, metricas, programadas::add, null);
+        ColaSalida segunda = new ColaSalida(new ByteArrayOutputStream(), 10, metricas, programadas::add, null);
+
+        ColaSalida.enLote(() -> {
+            try {
+                primera.actualizar(destino, ticket(1));
+                segunda.actualizar(destino, ticket(1));
+                primera.actualizar(destino, ticket(2));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            assertEquals(List.of(), programadas);
+        });
+
+        assertEquals(List.of(primera, segunda), programadas);
+    }
+
+    private static Ticket ticket(int id) {
+        Ticket ticket = new Ticket("cliente " + id, "descripción " + id, "MEDIA");
+        ticket.setId(id);
+        return ticket;
+    }
+}
@@ -0,0 +1,162 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Reproducción del diario y de sus instantáneas tras cerrarlo y volverlo a abrir
+class DiarioTicketsTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void reproduceLosRegistrosEnOrden() throws Exception {
+        DiarioTickets diario = abrir(new ArrayList<>());
+        diario.anotarRegistro(ticket(1, "Ana", "Sin red", "ALTA"));
+        diario.anotarRegistro(ticket(2, "Luis", "Impresora", "BAJA"));
+        diario.anotarAsignacion(1, "Tecnico-1");
+        diario.esperarDurable(diario.anotarResolucion(1));
+        diario.close();
+
+        List<String> eventos = new ArrayList<>();
+        abrir(eventos).close();
+
+        assertEquals(List.of(
+            "registro 1 Ana Sin red ALTA",
+            "registro 2 Luis Impresora BAJA",
+            "asignacion 1 Tecnico-1",
+            "resolucion 1"), eventos);
+    }
+
+    @Test
+    void descartaElUltimoRegistroIncompletoYSigueTrasElValido() throws Exception {
+        DiarioTickets diario = abrir(new ArrayList<>());
+        diario.anotarRegistro(ticket(1, "Ana", "Sin red", "MEDIA"));
+        diario.esperarDurable(diario.anotarAsignacion(1, "Tecnico-1"));
+        diario.close();
+
+        // Se corta el último registro a medio escribir
+        Path segmento = directorio.resolve("tickets-000000.diario");
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 3);
+        }
+
+        List<String> eventos = new ArrayList<>();
+        diario = abrir(eventos);
+        assertEquals(List.of("registro 1 Ana Sin red MEDIA"), eventos);
+        diario.esperarDurable(diario.anotarResolucion(1));
+        diario.close();
+
+        eventos.clear();
+        abrir(eventos).close();
+        assertEquals(List.of("registro 1 Ana Sin red MEDIA", "resolucion 1"), eventos);
+    }
+
+    @Test
+    void cuandoDurableSeEjecutaTrasLaEscritura() throws Exception {
+        DiarioTickets diario = abrir(new ArrayList<>());
+        long posicion = diario.anotarRegistro(ticket(1, "Ana", "Sin red", "ALTA"));
+        CountDownLatch hecho = new CountDownLatch(1);
+        diario.cuandoDurable(posicion, () -> {
+            try {
+                assertTrue(Files.size(directorio.resolve("tickets-000000.diario")) >= posicion);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            hecho.countDown();
+        });
+
+        assertTrue(hecho.await(5, TimeUnit.SECONDS));
+        // Lo ya durable se ejecuta enseguida en el propio hilo
+        List<String> enSeguida = new ArrayList<>();
+        diario.cuandoDurable(posicion, () -> enSeguida.add(Thread.currentThread().getName()));
+        assertEquals(List.of(Thread.currentThread().getName()), enSeguida);
+        diario.close();
+    }
+
+    @Test
+    void recuperaLaInstantaneaYDespuesElSegmentoNuevo() throws Exception {
+        DiarioTickets diario = abrir(new ArrayList<>());
+        diario.anotarRegistro(ticket(1, "Ana", "Sin red", "ALTA"));
+        diario.esperarDurable(diario.anotarAsignacion(1, "Tecnico-1"));
+        int segmento = diario.rotar();
+        diario.esperarDurable(diario.anotarRegistro(ticket(2, "Luis", "Impresora", "BAJA")));
+        Ticket primero = ticket(1, "Ana", "Sin red", "ALTA");
+        primero.setEstado("EN_PROCESO");
+        primero.setTecnicoAsignado("Tecnico-1");
+        diario.escribirInstantanea(segmento, 1, List.of(primero).iterator());
+        diario.close();
+
+        assertFalse(Files.exists(directorio.resolve("tickets-000000.diario")));
+        List<String> eventos = new ArrayList<>();
+        abrir(eventos).close();
+        assertEquals(List.of(
+            "ticket 1 Ana Sin red ALTA EN_PROCESO Tecnico-1",
+            "registro 2 Luis Impresora BAJA"), eventos);
+    }
+
+    @Test
+    void ignoraUnaInstantaneaDanadaYUsaLaAnterior() throws Exception {
+        DiarioTickets diario = abrir(new ArrayList<>());
+        int segmento = diario.rotar();
+        Ticket primero = ticket(1, "Ana", "Sin red", "MEDIA");
+        diario.escribirInstantanea(segmento, 1, List.of(primero).iterator());
+        diario.esperarDurable(diario.anotarResolucion(1));
+        diario.close();
+
+        // Una instantánea posterior a medio escribir no debe tapar a la buena
+        Files.write(directorio.resolve("instantanea-000002.dat"), new byte[64]);
+
+        List<String> eventos = new ArrayList<>();
+        abrir(eventos).close();
+        assertEquals(List.of("ticket 1 Ana Sin red MEDIA PENDIENTE ", "resolucion 1"), eventos);
+    }
+
+    private DiarioTickets abrir(List<String> eventos) throws Exception {
+        DiarioTickets diario = new DiarioTickets(directorio);
+        diario.reproducir(new DiarioTickets.Receptor() {
+            @Override
+            public void ticket(int id, String nombreCliente, String descripcion, String prioridad,
+                               String estado, String tecnico) {
+                eventos.add("ticket " + id + " " + nombreCliente + " " + descripcion + " "
+                    + prioridad + " " + estado + " " + tecnico);
+            }
+
+            @Override
+            public void registro(int id, String nombreCliente, String descripcion, String prioridad) {
+                eventos.add("registro " + id + " " + nombreCliente + " " + descripcion + " " + prioridad);
+            }
+
+            @Override
+            public void asignacion(int id, String tecnico) {
+                eventos.add("asignacion " + id + " " + tecnico);
+            }
+
+            @Override
+            public void resolucion(int id) {
+                eventos.add("resolucion " + id);
+            }
+        });
+        return diario;
+    }
+
+    private static Ticket ticket(int id, String nombreCliente, String descripcion, String prioridad) {
+        Ticket ticket = new Ticket(nombreCliente, descripcion, prioridad);
+        ticket.setId(id);
+        return ticket;
+    }
+}
@@ -0,0 +1,122 @@
+package com.practica.servidor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Páginas de la vista por bloques frente a filtrar y ordenar la lista entera
+class RangosTicketsTest {
+
+    // Más de dos bloques de 1024 ids, el último a medias
+    private static final int CANTIDAD = 2_500;
+
+    private final int[] claves = new int[CANTIDAD + 1];
+    private final RangosTickets rangos = new RangosTickets(id -> claves[id]);
+
+    @Test
+    void mascaraYGruposDeLasClaves() {
+        assertEquals(RangosTickets.TODAS, RangosTickets.mascara(-1, -1));
+        // EN_PROCESO (1) y MEDIA (1): clave 1 * 3 + 1
+        assertEquals(1 << 4, RangosTickets.mascara(1, 1));
+        assertEquals((1 << 6) | (1 << 7) | (1 << 8), RangosTickets.mascara(2, -1));
+
+        int pendientes = RangosTickets.mascara(0, -1);
+        assertArrayEquals(new int[] {1, 1 << 1, 1 << 2}, RangosTickets.grupos(OrdenTickets.PRIORIDAD, pendientes));
+        assertArrayEquals(new int[] {pendientes, 0, 0}, RangosTickets.grupos(OrdenTickets.ESTADO, pendientes));
+        assertArrayEquals(new int[] {pendientes}, RangosTickets.grupos(OrdenTickets.ID, pendientes));
+    }
+
+    @Test
+    void paginasComoLaVistaCompletaEnCadaOrden() {
+        llenar(new Random(7));
+        Random aleatorio = new Random(8);
+        for (int i = 0; i < 300; i++) {
+            int estado = aleatorio.nextInt(4) - 1;
+            int prioridad = aleatorio.nextInt(4) - 1;
+            OrdenTickets orden = OrdenTickets.values()[aleatorio.nextInt(3)];
+            boolean descendente = aleatorio.nextBoolean();
+            comprobarPagina(estado, prioridad, orden, descendente, aleatorio.nextInt(CANTIDAD), 1 + aleatorio.nextInt(200));
+        }
+    }
+
+    @Test
+    void moverActualizaRecuentosYPaginas() {
+        llenar(new Random(9));
+        Random aleatorio = new Random(10);
+        for (int i = 0; i < 1_000; i++) {
+            int id = 1 + aleatorio.nextInt(CANTIDAD);
+            int nueva = aleatorio.nextInt(9);
+            rangos.mover(id, claves[id], nueva);
+            claves[id] = nueva;
+        }
+
+        for (int clave = 0; clave < 9; clave++) {
+            assertEquals(esperados(1 << clave, OrdenTickets.ID, false).size(), rangos.contar(1 << clave));
+        }
+        comprobarPagina(0, -1, OrdenTickets.PRIORIDAD, false, 100, 50);
+        comprobarPagina(-1, 2, OrdenTickets.ESTADO, true, 0, 700);
+        comprobarPagina(-1, -1, OrdenTickets.ID, true, 1_020, 10);
+    }
+
+    @Test
+    void paginaMasAllaDelFinalQuedaVaciaOCorta() {
+        llenar(new Random(11));
+        int[] destino = new int[50];
+        int[] grupos = RangosTickets.grupos(OrdenTickets.ID, RangosTickets.TODAS);
+
+        assertEquals(0, rangos.buscar(grupos, false, CANTIDAD, destino));
+        assertEquals(20, rangos.buscar(grupos, false, CANTIDAD - 20, destino));
+        assertEquals(CANTIDAD, destino[19]);
+    }
+
+    @Test
+    void rechazaIdsFueraDeOrden() {
+        rangos.agregar(1, 0);
+        assertThrows(IllegalStateException.class, () -> rangos.agregar(3, 0));
+    }
+
+    private void llenar(Random aleatorio) {
+        for (int id = 1; id <= CANTIDAD; id++) {
+            claves[id] = aleatorio.nextInt(9);
+            rangos.agregar(id, claves[id]);
+        }
+    }
+
+    private void comprobarPagina(int estado, int prioridad, OrdenTickets orden, boolean descendente,
+                                 int desde, int tamano) {
+        int mascara = RangosTickets.mascara(estado, prioridad);
+        List<Integer> vista = esperados(mascara, orden, descendente);
+        List<Integer> pagina = vista.subList(Math.min(desde, vista.size()), Math.min(desde + tamano, vista.size()));
+
+        int[] destino = new int[tamano];
+        int escritos = rangos.buscar(RangosTickets.grupos(orden, mascara), descendente, desde, destino);
+
+        String caso = orden + (descendente ? " desc" : "") + " desde " + desde + " estado " + estado + " prioridad " + prioridad;
+        assertEquals(vista.size(), rangos.contar(mascara), caso);
+        assertEquals(pagina, Arrays.stream(destino, 0, escritos).boxed().toList(), caso);
+    }
+
+    // La vista entera: ids que cumplen la máscara, por grupo y por id dentro del grupo
+    private List<Integer> esperados(int mascara, OrdenTickets orden, boolean descendente) {
+        List<Integer> vista = new ArrayList<>();
+        for (int grupo : RangosTickets.grupos(orden, mascara)) {
+            for (int id = 1; id <= CANTIDAD; id++) {
+                if ((grupo & (1 << claves[id])) != 0) {
+                    vista.add(id);
+                }
+            }
+        }
+        if (descendente) {
+            Collections.reverse(vista);
+        }
+        return vista;
+    }
+}
@@ -0,0 +1,112 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Orden en que cada política de reparto entrega los tickets pendientes
+class RepartoTest {
+
+    private int siguienteId = 1;
+
+    @Test
+    void estrictoAtiendePrimeroLaPrioridadMasAltaYEnOrdenDeLlegada() {
+        PoliticaReparto reparto = new RepartoEstricto();
+        Ticket baja = agregar(reparto, "BAJA");
+        Ticket media = agregar(reparto, "MEDIA");
+        Ticket alta1 = agregar(reparto, "ALTA");
+        Ticket alta2 = agregar(reparto, "ALTA");
+
+        assertEquals(List.of(alta1, alta2, media, baja), extraerTodos(reparto, 4));
+        assertNull(reparto.extraer());
+    }
+
+    @Test
+    void ponderadoRepartePorPesosConLasColasLlenas() {
+        PoliticaReparto reparto = new RepartoPonderado(RepartoPonderado.PESOS_POR_DEFECTO);
+        for (int i = 0; i < 30; i++) {
+            agregar(reparto, "ALTA");
+            agregar(reparto, "MEDIA");
+            agregar(reparto, "BAJA");
+        }
+
+        Map<String, Integer> atendidos = new HashMap<>();
+        for (Ticket ticket : extraerTodos(reparto, 20)) {
+            atendidos.merge(ticket.getPrioridad(), 1, Integer::sum);
+        }
+        assertEquals(Map.of("ALTA", 12, "MEDIA", 6, "BAJA", 2), atendidos);
+    }
+
+    @Test
+    void ponderadoNoDaCreditoALaPrioridadQueEstuvoVacia() {
+        PoliticaReparto reparto = new RepartoPonderado(new int[] {1, 1, 1});
+        for (int i = 0; i < 10; i++) {
+            agregar(reparto, "MEDIA");
+        }
+        extraerTodos(reparto, 8);
+        // ALTA llega tarde y se pone al día con el último pase atendido: sin ese ajuste
+        // se llevaría los tres turnos seguidos antes de que MEDIA volviera a salir
+        agregar(reparto, "ALTA");
+        agregar(reparto, "ALTA");
+        agregar(reparto, "ALTA");
+
+        List<String> prioridades = extraerTodos(reparto, 4).stream().map(Ticket::getPrioridad).toList();
+        assertEquals(List.of("ALTA", "ALTA", "MEDIA", "ALTA"), prioridades);
+    }
+
+    @Test
+    void ponderadoRechazaPesosNoPositivos() {
+        assertThrows(IllegalArgumentException.class, () -> new RepartoPonderado(new int[] {6, 0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new RepartoPonderado(new int[] {6, 3}));
+    }
+
+    @Test
+    void envejecimientoAdelantaAlTicketQueLlevaMasDeDosPasosEsperando() {
+        AtomicLong reloj = new AtomicLong();
+        PoliticaReparto reparto = new RepartoEnvejecimiento(30_000, reloj::get);
+        Ticket baja = agregar(reparto, "BAJA");
+
+        reloj.set(59_000_000_000L);
+        Ticket altaAntes = agregar(reparto, "ALTA");
+        reloj.set(61_000_000_000L);
+        Ticket altaDespues = agregar(reparto, "ALTA");
+        Ticket media = agregar(reparto, "MEDIA");
+
+        assertEquals(List.of(altaAntes, baja, altaDespues, media), extraerTodos(reparto, 4));
+        assertNull(reparto.extraer());
+    }
+
+    @Test
+    void envejecimientoConPasoCeroEsPorOrdenDeLlegada() {
+        AtomicLong reloj = new AtomicLong(-5);
+        PoliticaReparto reparto = new RepartoEnvejecimiento(0, reloj::incrementAndGet);
+        Ticket baja = agregar(reparto, "BAJA");
+        Ticket media = agregar(reparto, "MEDIA");
+        Ticket alta = agregar(reparto, "ALTA");
+
+        assertEquals(List.of(baja, media, alta), extraerTodos(reparto, 3));
+    }
+
+    private Ticket agregar(PoliticaReparto reparto, String prioridad) {
+        Ticket ticket = new Ticket("cliente", "descripción", prioridad);
+        ticket.setId(siguienteId++);
+        reparto.agregar(ticket);
+        return ticket;
+    }
+
+    private static List<Ticket> extraerTodos(PoliticaReparto reparto, int cantidad) {
+        Ticket[] tickets = new Ticket[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            tickets[i] = reparto.extraer();
+        }
+        return List.of(tickets);
+    }
+}
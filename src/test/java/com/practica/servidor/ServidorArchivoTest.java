@@ -0,0 +1,39 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Operaciones del Servidor sobre tickets que ya están en el archivo
+class ServidorArchivoTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void asignarUnArchivadoNoCambiaNadaNiPublica() throws Exception {
+        Servidor servidor = new Servidor(ModoServidor.BLOQUEANTE, directorio);
+        servidor.registrarTicketDirecto(new Ticket("cliente", "descripción", "ALTA"));
+        Ticket ticket = servidor.tomarTicket("Tecnico-1");
+        servidor.resolverTicket(ticket);
+        servidor.archivarResueltos(System.currentTimeMillis() + 2000);
+
+        List<EventoTicket> eventos = new CopyOnWriteArrayList<>();
+        servidor.suscribir(eventos::add);
+
+        assertFalse(servidor.asignarTecnicoManual(ticket, "Tecnico-2"));
+        assertTrue(eventos.isEmpty());
+        Ticket guardado = servidor.getListaTickets().get(0);
+        assertEquals("RESUELTO", guardado.getEstado());
+        assertEquals("Tecnico-1", guardado.getTecnicoAsignado());
+        servidor.cerrar();
+    }
+}
@@ -0,0 +1,102 @@
+package com.practica.servidor;
+
+import com.practica.util.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Arranques sobre un diario con tickets ya archivados
+class ServidorReinicioTest {
+
+    private static final String ARCHIVAR = "helpdesk.archivarTrasSegundos";
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void arrancaSinArchivarYConservaLosArchivados() throws Exception {
+        prepararDiarioConArchivados();
+
+        System.setProperty(ARCHIVAR, "-1");
+        try {
+            Servidor servidor = new Servidor(ModoServidor.BLOQUEANTE, directorio);
+            List<Ticket> tickets = servidor.getListaTickets();
+
+            assertEquals(6, tickets.size());
+            for (int id = 1; id <= 5; id++) {
+                Ticket ticket = tickets.get(id - 1);
+                assertEquals(id, ticket.getId());
+                assertEquals("RESUELTO", ticket.getEstado());
+                assertEquals("cliente " + id, ticket.getNombreCliente());
+                assertEquals("Tecnico-1", ticket.getTecnicoAsignado());
+            }
+            assertEquals("PENDIENTE", tickets.get(5).getEstado());
+
+            // Sin archivar, pedirlo no hace nada y el archivo sigue igual
+            servidor.archivarResueltos(System.currentTimeMillis() + 2000);
+            Ticket nuevo = new Ticket("otro", "nuevo", "ALTA");
+            servidor.registrarTicketDirecto(nuevo);
+            assertEquals(7, nuevo.getId());
+            servidor.cerrar();
+        } finally {
+            System.clearProperty(ARCHIVAR);
+        }
+    }
+
+    @Test
+    void diarioInconsistenteArrancaVacioEnMemoria() throws Exception {
+        prepararDiarioConArchivados();
+        // Sin el archivo, el diario salta del id 0 al 6
+        borrar(directorio.resolve("archivo"));
+        Path instantanea = unicaInstantanea();
+        long tamano = Files.size(instantanea);
+
+        Servidor servidor = new Servidor(ModoServidor.BLOQUEANTE, directorio);
+
+        assertTrue(servidor.getListaTickets().isEmpty());
+        Ticket nuevo = new Ticket("otro", "nuevo", "ALTA");
+        servidor.registrarTicketDirecto(nuevo);
+        assertEquals(1, nuevo.getId());
+        assertEquals(tamano, Files.size(instantanea));
+    }
+
+    // Cinco tickets resueltos y archivados, una instantánea sin ellos y un sexto pendiente
+    private void prepararDiarioConArchivados() throws Exception {
+        Servidor servidor = new Servidor(ModoServidor.BLOQUEANTE, directorio);
+        for (int i = 1; i <= 5; i++) {
+            servidor.registrarTicketDirecto(new Ticket("cliente " + i, "descripción " + i, "MEDIA"));
+            servidor.resolverTicket(servidor.tomarTicket("Tecnico-1"));
+        }
+        servidor.registrarTicketDirecto(new Ticket("cliente 6", "descripción 6", "BAJA"));
+        servidor.archivarResueltos(System.currentTimeMillis() + 2000);
+        servidor.tomarInstantanea();
+        servidor.cerrar();
+    }
+
+    private Path unicaInstantanea() throws IOException {
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            List<Path> instantaneas = ficheros
+                .filter(fichero -> fichero.getFileName().toString().startsWith("instantanea-"))
+                .toList();
+            assertEquals(1, instantaneas.size());
+            return instantaneas.get(0);
+        }
+    }
+
+    private static void borrar(Path raiz) throws IOException {
+        try (Stream<Path> ficheros = Files.walk(raiz)) {
+            for (Path fichero : ficheros.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(fichero);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.practica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Clasificación por diccionario frente a la comparación por palabras del cliente antiguo
+class ClasificadorPrioridadTest {
+
+    private static final String[] PALABRAS = {
+        "urgente", "bloqueado", "emergencia", "error", "falla", "fallo", "lento",
+        "impresora", "red", "no", "va", "el", "correo", "urg", "fall", "lentitud"
+    };
+
+    @Test
+    void elDiccionarioPorDefectoClasificaComoElClienteAntiguo() {
+        ClasificadorPrioridad clasificador = ClasificadorPrioridad.porDefecto();
+        List<String> descripciones = List.of(
+            "", "La impresora no imprime", "URGENTE: servidor caído", "Usuario bloqueado",
+            "emergencia en planta", "Error al iniciar sesión", "la red falla", "Fallo de disco",
+            "el equipo va lento", "urgenteerror", "erro r", "Lentamente", "fallaurgente");
+        for (String descripcion : descripciones) {
+            assertEquals(clasificacionAntigua(descripcion), clasificador.clasificar(descripcion), descripcion);
+        }
+    }
+
+    @Test
+    void coincideConElClienteAntiguoEnTextosAleatorios() {
+        ClasificadorPrioridad clasificador = ClasificadorPrioridad.porDefecto();
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder descripcion = new StringBuilder();
+            int palabras = aleatorio.nextInt(8);
+            for (int j = 0; j < palabras; j++) {
+                String palabra = PALABRAS[aleatorio.nextInt(PALABRAS.length)];
+                descripcion.append(aleatorio.nextBoolean() ? palabra.toUpperCase() : palabra);
+                // A veces pegadas, para que aparezcan dentro de otras palabras
+                if (aleatorio.nextInt(3) > 0) {
+                    descripcion.append(' ');
+                }
+            }
+            String texto = descripcion.toString();
+            assertEquals(clasificacionAntigua(texto), clasificador.clasificar(texto), texto);
+        }
+    }
+
+    @Test
+    void noDistingueAcentos() {
+        ClasificadorPrioridad clasificador = ClasificadorPrioridad.porDefecto();
+        assertEquals("ALTA", clasificador.clasificar("Está BLOQUEÁDO"));
+        assertEquals("MEDIA", clasificador.clasificar("La conexión FÁLLA"));
+    }
+
+    @Test
+    void respetaPesosNegativosYUmbrales() throws IOException {
+        ClasificadorPrioridad clasificador = ClasificadorPrioridad.compilar(new StringReader("""
+            # Dos urgencias para ALTA, salvo que se diga que no lo es
+            ALTA   1  urgente
+            ALTA  -1  no es urgente
+            MEDIA  1  va lento
+            UMBRAL ALTA 2
+            """));
+
+        assertEquals("BAJA", clasificador.clasificar("urgente"));
+        assertEquals("ALTA", clasificador.clasificar("urgente, muy urgente"));
+        assertEquals("BAJA", clasificador.clasificar("urgente pero no es urgente"));
+        assertEquals("MEDIA", clasificador.clasificar("no es urgente, solo va lento"));
+    }
+
+    @Test
+    void rechazaLineasNoValidas() {
+        assertThrows(IOException.class, () -> ClasificadorPrioridad.compilar(new StringReader("ALTA urgente")));
+        assertThrows(IOException.class, () -> ClasificadorPrioridad.compilar(new StringReader("BAJA 1 lento")));
+        assertThrows(IOException.class, () -> ClasificadorPrioridad.compilar(new StringReader("MEDIA x lento")));
+    }
+
+    // La lógica que tenía Cliente.generarPrioridad() antes del diccionario
+    private static String clasificacionAntigua(String descripcion) {
+        String texto = descripcion.toLowerCase();
+        for (String palabra : new String[]{"urgente", "bloqueado", "emergencia"}) {
+            if (texto.contains(palabra)) {
+                return "ALTA";
+            }
+        }
+        for (String palabra : new String[]{"error", "falla", "fallo", "lento"}) {
+            if (texto.contains(palabra)) {
+                return "MEDIA";
+            }
+        }
+        return "BAJA";
+    }
+}
@@ -0,0 +1,154 @@
+package com.practica.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ida y vuelta de cada tipo de trama: lo que se codifica se lee igual al otro lado
+class ProtocoloTest {
+
+    // Tipo, idPeticion, las dos longitudes de texto y la prioridad
+    private static final int FIJO_REGISTRO = 1 + 4 + 4 + 4 + 1;
+
+    @Test
+    void registroConservaLosTextos() throws IOException {
+        Ticket ticket = new Ticket("Peña", "La impresora no imprime ñ ni 😀", "MEDIA");
+
+        Mensaje mensaje = leer(Protocolo.tramaRegistro(7, ticket));
+
+        assertEquals(Protocolo.REGISTRAR, mensaje.getTipo());
+        assertEquals(7, mensaje.getIdPeticion());
+        assertEquals("Peña", mensaje.getTicket().getNombreCliente());
+        assertEquals("La impresora no imprime ñ ni 😀", mensaje.getTicket().getDescripcion());
+        assertEquals("MEDIA", mensaje.getTicket().getPrioridad());
+    }
+
+    @Test
+    void registroAdmiteTextosDeMasDe65535Bytes() throws IOException {
+        // 2 bytes por carácter en UTF-8: muy por encima del límite de writeUTF()
+        String descripcion = "ñ".repeat(50_000);
+        String nombre = "x".repeat(70_000);
+
+        Mensaje mensaje = leer(Protocolo.tramaRegistro(1, new Ticket(nombre, descripcion, "ALTA")));
+
+        assertEquals(nombre, mensaje.getTicket().getNombreCliente());
+        assertEquals(descripcion, mensaje.getTicket().getDescripcion());
+    }
+
+    @Test
+    void registroDelTamanoMaximoDeTrama() throws IOException {
+        String descripcion = "d".repeat(Protocolo.LONGITUD_MAXIMA_TRAMA - FIJO_REGISTRO - 1);
+
+        byte[] trama = Protocolo.tramaRegistro(1, new Ticket("c", descripcion, "BAJA"));
+
+        assertEquals(Protocolo.LONGITUD_MAXIMA_TRAMA + 4, trama.length);
+        assertEquals(descripcion, leer(trama).getTicket().getDescripcion());
+    }
+
+    @Test
+    void registroMayorQueLaTramaNoSeCodifica() {
+        String descripcion = "d".repeat(Protocolo.LONGITUD_MAXIMA_TRAMA - FIJO_REGISTRO);
+
+        assertThrows(IOException.class, () -> Protocolo.tramaRegistro(1, new Ticket("c", descripcion, "BAJA")));
+    }
+
+    @Test
+    void loteSePartePeroConservaOrdenYPeticiones() throws IOException {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            tickets.add(new Ticket("cliente " + i, "descripción número " + i + " " + "z".repeat(i % 200), "MEDIA"));
+        }
+        // Uno más grande que una trama de lote normal va solo en la suya
+        tickets.add(2500, new Ticket("grande", "g".repeat(300_000), "ALTA"));
+
+        List<byte[]> tramas = Protocolo.tramasRegistroLote(100, tickets);
+
+        assertTrue(tramas.size() > 1);
+        List<Ticket> leidos = new ArrayList<>();
+        for (byte[] trama : tramas) {
+            Mensaje mensaje = leer(trama);
+            assertEquals(Protocolo.REGISTRAR_LOTE, mensaje.getTipo());
+            assertEquals(100 + leidos.size(), mensaje.getIdPeticion());
+            leidos.addAll(mensaje.getTickets());
+        }
+        assertEquals(tickets.size(), leidos.size());
+        for (int i = 0; i < tickets.size(); i++) {
+            assertEquals(tickets.get(i).getNombreCliente(), leidos.get(i).getNombreCliente());
+            assertEquals(tickets.get(i).getDescripcion(), leidos.get(i).getDescripcion());
+            assertEquals(tickets.get(i).getPrioridad(), leidos.get(i).getPrioridad());
+        }
+    }
+
+    @Test
+    void registradoLlevaIdYPrioridad() throws IOException {
+        Ticket ticket = new Ticket("c", "d", "BAJA");
+        ticket.setId(123_456);
+
+        Mensaje mensaje = leer(Protocolo.tramaRegistrado(9, ticket));
+
+        assertEquals(Protocolo.REGISTRADO, mensaje.getTipo());
+        assertEquals(9, mensaje.getIdPeticion());
+        assertEquals(123_456, mensaje.getIdTicket());
+        assertEquals("BAJA", mensaje.getPrioridad());
+    }
+
+    @Test
+    void actualizacionConTecnicoLargo() throws IOException {
+        Ticket ticket = new Ticket("c", "d", "ALTA");
+        ticket.setId(42);
+        ticket.setEstado("EN_PROCESO");
+        ticket.setTecnicoAsignado("Técnico-".repeat(10_000));
+
+        Mensaje mensaje = leer(Protocolo.tramaActualizacion(ticket));
+
+        assertEquals(Protocolo.ACTUALIZACION, mensaje.getTipo());
+        assertEquals(42, mensaje.getIdTicket());
+        assertEquals("EN_PROCESO", mensaje.getEstado());
+        assertEquals(ticket.getTecnicoAsignado(), mensaje.getTecnico());
+    }
+
+    @Test
+    void ocupadoLlevaLaEsperaSugerida() throws IOException {
+        Mensaje mensaje = leer(Protocolo.tramaOcupado(5, 250));
+
+        assertEquals(Protocolo.OCUPADO, mensaje.getTipo());
+        assertEquals(5, mensaje.getIdPeticion());
+        assertEquals(250, mensaje.getReintentarMs());
+
+        DataInputStream cabecera = new DataInputStream(new ByteArrayInputStream(Protocolo.cabeceraOcupado(800)));
+        ServidorOcupadoException ocupado = assertThrows(ServidorOcupadoException.class,
+            () -> Protocolo.leerCabecera(cabecera));
+        assertEquals(800, ocupado.getReintentarMs());
+    }
+
+    @Test
+    void textoConLongitudCorruptaSeRechaza() throws IOException {
+        byte[] trama = Protocolo.tramaRegistro(1, new Ticket("cliente", "descripcion", "ALTA"));
+        // La longitud del nombre pasa a ser mayor que lo que queda de trama
+        trama[4 + 1 + 4] = 0x7F;
+
+        assertThrows(IOException.class, () -> leer(trama));
+    }
+
+    @Test
+    void tramaMayorQueElMaximoSeRechazaAlLeer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(Protocolo.LONGITUD_MAXIMA_TRAMA + 1);
+
+        assertThrows(IOException.class, () -> leer(bytes.toByteArray()));
+    }
+
+    private static Mensaje leer(byte[] trama) throws IOException {
+        return Protocolo.leerTrama(new DataInputStream(new ByteArrayInputStream(trama)));
+    }
+}